@@ -20,11 +20,26 @@ import android.widget.TextView;
 import com.example.killersudoku.Models.*;
 import com.example.killersudoku.UI.GameDisplay;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity
 {
+    // In-progress game, rewritten every time the activity is paused
+    private static final String SAVE_FILE = "saved_game.bin";
+    // Every read and write of the save file runs on this one thread, shared by all activity instances. A recreated
+    // activity's load is queued behind the previous instance's last save, so it never sees a stale or half-written file.
+    private static final ExecutorService SAVE_EXECUTOR = Executors.newSingleThreadExecutor();
+
     private GameDisplay display;
+    // [digit - 1] = number button, looked up once rather than on every update
+    private Button[] numButtons;
 
     private int defaultButtonColor;
     private int noteModeColor;
@@ -40,7 +55,97 @@ public class MainActivity extends AppCompatActivity
         this.noteModeColor = ContextCompat.getColor(this, R.color.gold);
         this.rand = new Random();
 
-        this.display = new GameDisplay(this);
+        this.numButtons = new Button[] {
+            findViewById(R.id.button1),
+            findViewById(R.id.button2),
+            findViewById(R.id.button3),
+            findViewById(R.id.button4),
+            findViewById(R.id.button5),
+            findViewById(R.id.button6),
+            findViewById(R.id.button7),
+            findViewById(R.id.button8),
+            findViewById(R.id.button9)
+        };
+
+        this.display = new GameDisplay(this, loadSavedGame());
+        updateNumButtons();
+    }
+
+    @Override
+    protected void onPause()
+    {
+        super.onPause();
+
+        // Copying the game is cheap; the file write happens off the UI thread
+        GameSnapshot snapshot = display.createSnapshot();
+        SAVE_EXECUTOR.execute(() -> saveGame(snapshot));
+    }
+
+    @Override
+    protected void onDestroy()
+    {
+        display.shutdown();
+        super.onDestroy();
+    }
+
+    // Returns the game saved by the last onPause, or null if there is none or it can't be read. Waits for any save
+    // still queued, which is normally a single small file write.
+    private GameSnapshot loadSavedGame()
+    {
+        try
+        {
+            return SAVE_EXECUTOR.submit(this::readSavedGame).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e)
+        {
+            System.out.printf("Exception: %s%n", e.getCause());
+            return null;
+        }
+    }
+
+    // Only called on SAVE_EXECUTOR
+    private GameSnapshot readSavedGame()
+    {
+        File file = new File(getFilesDir(), SAVE_FILE);
+        if (!file.exists())
+            return null;
+
+        try (FileInputStream in = new FileInputStream(file))
+        {
+            return GameSnapshot.read(in);
+        }
+        catch (IOException e)
+        {
+            System.out.printf("Exception: %s%n", e);
+            return null;
+        }
+    }
+
+    // Writes to a temporary file first so a save interrupted part way never replaces the previous one. Only called on
+    // SAVE_EXECUTOR.
+    private void saveGame(GameSnapshot snapshot)
+    {
+        File file = new File(getFilesDir(), SAVE_FILE);
+        File temp = new File(getFilesDir(), SAVE_FILE + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp))
+        {
+            snapshot.write(out);
+            out.getFD().sync();
+        }
+        catch (IOException e)
+        {
+            System.out.printf("Exception: %s%n", e);
+            return;
+        }
+
+        if (!temp.renameTo(file))
+            System.out.printf("Could not replace %s%n", file);
     }
 
     public void onNumClick(View v)
@@ -63,6 +168,11 @@ public class MainActivity extends AppCompatActivity
 
         popupWindow.showAtLocation(v, Gravity.CENTER, 0, 300);
 
+        TextView puzzleInfo = popupView.findViewById(R.id.puzzleInfo);
+        puzzleInfo.setText(String.format("Puzzle %s, difficulty %s%s",
+                Long.toUnsignedString(display.getPuzzleNumber()), display.getRating().score,
+                display.getRating().solved ? "" : " (needs guessing)"));
+
         Button yes = popupView.findViewById(R.id.yesOption);
         yes.setOnClickListener((view) -> {
             startNewGame(view);
@@ -71,34 +181,37 @@ public class MainActivity extends AppCompatActivity
 
         Button no = popupView.findViewById(R.id.noOption);
         no.setOnClickListener((view) -> popupWindow.dismiss());
+
+        // Games saved before puzzle numbers existed have no number to replay
+        Button replay = popupView.findViewById(R.id.replayOption);
+        if (display.getPuzzleNumber() == 0)
+            replay.setVisibility(View.GONE);
+        replay.setOnClickListener((view) -> {
+            replayPuzzle();
+            popupWindow.dismiss();
+        });
     }
 
     // Resets button colors/visibilities and starts a new game in the model
     public void startNewGame(View v)
     {
-        Button noteButton = findViewById(R.id.noteButton);
-        noteButton.setBackgroundColor(defaultButtonColor);
+        resetNoteButton();
         display.resetGame();
+        updateNumButtons();
+    }
 
-        Button b;
-        b = findViewById(R.id.button1);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button2);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button3);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button4);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button5);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button6);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button7);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button8);
-        b.setVisibility(Button.VISIBLE);
-        b = findViewById(R.id.button9);
-        b.setVisibility(Button.VISIBLE);
+    // Starts the current puzzle over from its puzzle number, clearing everything the user entered
+    private void replayPuzzle()
+    {
+        resetNoteButton();
+        display.startPuzzle(display.getPuzzleNumber());
+        updateNumButtons();
+    }
+
+    private void resetNoteButton()
+    {
+        Button noteButton = findViewById(R.id.noteButton);
+        noteButton.setBackgroundColor(defaultButtonColor);
     }
 
     public void toggleNoteMode(View v)
@@ -130,29 +243,21 @@ public class MainActivity extends AppCompatActivity
         updateNumButtons();
     }
 
+    public void onRedoClick(View v)
+    {
+        display.onRedoClick();
+        updateNumButtons();
+    }
+
+    // Hides the buttons of digits that are already on the board 9 times
     private void updateNumButtons()
     {
-        List<Integer> quantities = display.getNumCounts();
-        List<Integer> buttonIds = new ArrayList<>(Arrays.asList(
-            R.id.button1,
-            R.id.button2,
-            R.id.button3,
-            R.id.button4,
-            R.id.button5,
-            R.id.button6,
-            R.id.button7,
-            R.id.button8,
-            R.id.button9
-        ));
+        int[] quantities = display.getNumCounts();
         for (int i = 0; i < 9; ++i)
         {
-            Button b = findViewById(buttonIds.get(i));
-
-            if (quantities.get(i) == 9)
-                b.setVisibility(Button.INVISIBLE);
-
-            else
-                b.setVisibility(Button.VISIBLE);
+            int visibility = quantities[i] == 9 ? Button.INVISIBLE : Button.VISIBLE;
+            if (numButtons[i].getVisibility() != visibility)
+                numButtons[i].setVisibility(visibility);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,87 +1,126 @@
 package com.example.killersudoku.Models;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class Board
 {
-    private List<List<Cell>> board;
+    // Cage wall sides of a cell, set where the neighbor on that side is in another zone or off the board
+    public static final int WALL_TOP = 1;
+    public static final int WALL_RIGHT = 2;
+    public static final int WALL_BOTTOM = 4;
+    public static final int WALL_LEFT = 8;
+
+    // [cell index] = the 20 other cells sharing its row, column or box
+    private static final int[][] PEERS = new int[81][];
+    // [cell index] = the cells above, right of, below and left of it that are on the board
+    private static final int[][] NEIGHBORS = new int[81][];
+
+    static
+    {
+        for (int cell = 0; cell < 81; ++cell)
+        {
+            int x = cell % 9;
+            int y = cell / 9;
+            int[] peers = new int[20];
+            int count = 0;
+            for (int other = 0; other < 81; ++other)
+            {
+                int ox = other % 9;
+                int oy = other / 9;
+                if (other != cell && (ox == x || oy == y || boxOf(ox, oy) == boxOf(x, y)))
+                    peers[count++] = other;
+            }
+            PEERS[cell] = peers;
+
+            int[] neighbors = new int[4];
+            count = 0;
+            if (y > 0)
+                neighbors[count++] = cell - 9;
+            if (x < 8)
+                neighbors[count++] = cell + 1;
+            if (y < 8)
+                neighbors[count++] = cell + 9;
+            if (x > 0)
+                neighbors[count++] = cell - 1;
+            NEIGHBORS[cell] = Arrays.copyOf(neighbors, count);
+        }
+    }
+
+    // Flat 9x9 grid, indexed by (y * 9) + x
+    private Cell[] cells;
+    private byte[] values;
+    // [cell index] = pencil marks as a 9-bit mask where bit 0 is the digit 1
+    private short[] notes;
+    // [(house * 10) + digit] = how many times digit appears in the house.
+    // Houses 0-8 are rows, 9-17 are columns and 18-26 are 3x3 boxes.
+    private byte[] houseCounts;
+    // Total number of surplus digits across all houses, e.g. a row holding three 4's adds 2
+    private int conflicts;
+    private int filledCount;
+    // [(digit * 2) + word] = 81-bit set of the cells holding digit: word 0 holds cell indices 0-63, word 1 holds 64-80
+    private long[] digitCells;
+    // [digit] = how many cells hold digit
+    private byte[] digitCounts;
     public List<Zone> zones;
-    private Random rand;
+    // [cell index] = index into zones of the zone holding that cell, or -1 if it has none yet
+    private byte[] cellZones;
 
     public Board(String srcString)
     {
-        this.board = new ArrayList<List<Cell>>();
+        this.cells = new Cell[81];
+        this.values = new byte[81];
+        this.notes = new short[81];
+        this.houseCounts = new byte[270];
+        this.digitCells = new long[20];
+        this.digitCounts = new byte[10];
         this.zones = new ArrayList<Zone>();
-        this.rand = new Random();
+        this.cellZones = new byte[81];
+        Arrays.fill(this.cellZones, (byte)-1);
 
         int size = srcString.length();
 
         for (int i = 0; i < 9; ++i)
         {
-            this.board.add(new ArrayList<Cell>());
-
             for (int j = 0; j < 9; ++j)
             {
-                if (size > 0)
-                {
-                    int srcIndex = (i * 9) + j;
-                    Cell c = new Cell(j, i, Integer.parseInt(String.valueOf(srcString.charAt(srcIndex))));
-                    this.board.get(i).add(c);
-                }
+                int srcIndex = (i * 9) + j;
                 // Empty string passed in constructor will fill out an empty board with all zeroes for values
-                else
-                {
-                    Cell c = new Cell(j, i, 0);
-                    this.board.get(i).add(c);
-                }
+                int value = size > 0 ? srcString.charAt(srcIndex) - '0' : 0;
+                this.cells[srcIndex] = new Cell(j, i, 0);
+                setValue(j, i, value);
             }
         }
     }
 
     public Board(Board b)
     {
-        this.board = new ArrayList<List<Cell>>();
+        this.cells = new Cell[81];
+        this.values = b.values.clone();
+        this.notes = b.notes.clone();
+        this.houseCounts = b.houseCounts.clone();
+        this.conflicts = b.conflicts;
+        this.filledCount = b.filledCount;
+        this.digitCells = b.digitCells.clone();
+        this.digitCounts = b.digitCounts.clone();
         this.zones = new ArrayList<Zone>();
-        this.rand = new Random();
+        this.cellZones = new byte[81];
+        Arrays.fill(this.cellZones, (byte)-1);
 
-        for (int i = 0; i < 9; ++i)
-        {
-            this.board.add(new ArrayList<Cell>());
-
-            for (int j = 0; j < 9; ++j)
-            {
-                Cell c = new Cell(j, i, b.getCell(j, i).value);
-                this.board.get(i).add(c);
-            }
-        }
+        for (int i = 0; i < 81; ++i)
+            this.cells[i] = new Cell(i % 9, i / 9, this.values[i]);
     }
 
-    // Clones the zones of another board using the cells of this board
+    // Clones the zones of another board using the cells of this board.
+    // Membership masks and the cell to zone index are copied as-is rather than rebuilt.
     public void cloneZones(Board b)
     {
         for (Zone z : b.zones)
-        {
-            Zone newZone = new Zone();
-            for (Cell foreignCell : z.cells)
-            {
-                Cell nativeCell = getCell(foreignCell);
-                newZone.add(nativeCell);
-            }
-            this.zones.add(newZone);
-        }
+            this.zones.add(new Zone(z, this));
+        System.arraycopy(b.cellZones, 0, this.cellZones, 0, 81);
     }
 
     public boolean isFull()
     {
-        for (int i = 0; i < 9; ++i)
-        {
-            for (int j = 0; j < 9; ++j)
-            {
-                if (this.board.get(j).get(i).value == 0)
-                    return false;
-            }
-        }
-        return true;
+        return this.filledCount == 81;
     }
 
     public void simplePrint()
@@ -89,7 +128,7 @@ public class Board
         System.out.println();
         for (int i = 0; i < 9; ++i)
         {
-            System.out.println(this.board.get(i));
+            System.out.println(Arrays.asList(this.cells).subList(i * 9, (i * 9) + 9));
         }
         System.out.println();
     }
@@ -105,7 +144,7 @@ public class Board
 
     public Cell getCell(int x, int y)
     {
-        return this.board.get(y).get(x);
+        return this.cells[(y * 9) + x];
     }
 
     public Cell getCell(Cell c)
@@ -113,487 +152,379 @@ public class Board
         return getCell(c.x, c.y);
     }
 
-    public void addZone(Zone z)
+    // Sets the value of a cell while keeping the flat value grid, house counts and cage sums in sync.
+    // All value changes must go through here rather than writing Cell.value directly.
+    public void setValue(Cell c, int value)
     {
-        this.zones.add(z);
+        setValue(c.x, c.y, value);
     }
 
-    public int getZoneTotal()
+    public void setValue(int x, int y, int value)
     {
-        int total = 0;
-        for (Zone z : this.zones)
+        int index = (y * 9) + x;
+        int oldValue = this.values[index];
+        if (oldValue == value)
+            return;
+
+        this.values[index] = (byte)value;
+        this.cells[index].value = value;
+
+        if (oldValue == 0)
+            this.filledCount++;
+        else if (value == 0)
+            this.filledCount--;
+
+        int row = y;
+        int column = 9 + x;
+        int box = 18 + boxOf(x, y);
+        if (oldValue > 0)
         {
-            total += z.getTotal();
+            this.digitCells[(oldValue * 2) + (index >> 6)] &= ~(1L << index);
+            this.digitCounts[oldValue]--;
+            removeFromHouse(row, oldValue);
+            removeFromHouse(column, oldValue);
+            removeFromHouse(box, oldValue);
         }
-        return total;
+        if (value > 0)
+        {
+            this.digitCells[(value * 2) + (index >> 6)] |= 1L << index;
+            this.digitCounts[value]++;
+            addToHouse(row, value);
+            addToHouse(column, value);
+            addToHouse(box, value);
+        }
+
+        Zone z = getZoneOfCell(this.cells[index]);
+        if (z != null)
+            z.valueChanged(oldValue, value);
     }
 
-    public void markCellOwned(int x, int y)
+    // Pencil marks of a cell as a 9-bit mask where bit 0 is the digit 1
+    public int getNotes(int x, int y)
     {
-        this.board.get(y).get(x).owned = true;
+        return this.notes[(y * 9) + x];
     }
 
-    public void markCellOwned(Cell c)
+    public void setNotes(int x, int y, int mask)
     {
-        this.board.get(c.y).get(c.x).owned = true;
+        this.notes[(y * 9) + x] = (short)mask;
     }
 
-    // Causes a zone to mark ownership of all of its cells
-    public void zoneAttrition(Zone z)
+    // Flips the pencil mark for one digit and returns the new mask
+    public int toggleNote(int x, int y, int digit)
     {
-        for (Cell c : z.cells)
-        {
-            Cell boardCell = this.board.get(c.y).get(c.x);
-            boardCell.owned = true;
-            boardCell.parent = z.getId();
-        }
+        int index = (y * 9) + x;
+        this.notes[index] ^= (short)(1 << (digit - 1));
+        return this.notes[index];
     }
 
-    public Cell getRandomUnownedCell()
+    // The 20 cell indices sharing a row, column or box with the cell. The returned array is shared and must not be modified.
+    public static int[] getPeers(int x, int y)
     {
-        List<Cell> unowned = new ArrayList<Cell>();
-
-        for (List<Cell> row : this.board)
-        {
-            List<Cell> unownedRow = row.stream()
-                    .filter(x -> !x.owned)
-                    .collect(Collectors.toList());
-            unowned.addAll(unownedRow);
-        }
+        return PEERS[(y * 9) + x];
+    }
 
-        int size = unowned.size();
-        if (size > 1)
-        {
-            Random rand = new Random();
-            Cell c = unowned.get(rand.nextInt(size));
-            return this.board.get(c.y).get(c.x);
-        }
-        else if (size == 1)
-        {
-            Cell c = unowned.get(0);
-            return this.board.get(c.y).get(c.x);
-        }
-        return null;
+    public void addZone(Zone z)
+    {
+        byte index = (byte)this.zones.size();
+        this.zones.add(z);
+        for (Cell c : z.cells)
+            this.cellZones[(c.y * 9) + c.x] = index;
     }
 
-    public Cell getRandomAdjacentCell(Zone z)
+    // Rebuilds the zones from a saved [cell index] = zone index layout instead of generating new ones
+    public void loadZones(byte[] layout)
     {
-        HashSet<Cell> availableCells = new HashSet<Cell>();
+        int zoneCount = 0;
+        for (byte zone : layout)
+            zoneCount = Math.max(zoneCount, zone + 1);
 
-        int size = z.cells.size();
-        for (int i = 0; i < size; ++i)
-        {
-            List<Cell> availableNeighbors = getAvailableCellNeighbors(z.cells.get(i));
-            for (Cell c : availableNeighbors)
-            {
-                if (!z.containsValue(c.value))
-                    availableCells.add(c);
-            }
-        }
+        zones = new ArrayList<Zone>(zoneCount);
+        for (int i = 0; i < zoneCount; ++i)
+            zones.add(new Zone(i));
 
-        int avSize = availableCells.size();
-        if (avSize > 0)
+        for (int i = 0; i < 81; ++i)
         {
-            List<Cell> av = availableCells.stream().collect(Collectors.toList());
-            Random rand = new Random();
-            return av.get(rand.nextInt(avSize));
+            Cell c = this.cells[i];
+            Zone z = zones.get(layout[i]);
+            z.add(c);
+            c.owned = true;
+            c.parent = layout[i];
         }
-        return null;
+        System.arraycopy(layout, 0, this.cellZones, 0, 81);
     }
 
-    public List<Cell> getAvailableCellNeighbors(Cell homeCell)
+    public int getZoneTotal()
     {
-        List<Cell> output = new ArrayList<Cell>();
-        Cell c;
-
-        c = getCellAbove(homeCell);
-        if (c != null && !c.owned)
-            output.add(c);
-
-        c = getCellRight(homeCell);
-        if (c != null && !c.owned)
-            output.add(c);
-
-        c = getCellBelow(homeCell);
-        if (c != null && !c.owned)
-            output.add(c);
-
-        c = getCellLeft(homeCell);
-        if (c != null && !c.owned)
-            output.add(c);
-
-        return output;
+        int total = 0;
+        for (Zone z : this.zones)
+        {
+            total += z.getTotal();
+        }
+        return total;
     }
 
     public Cell getCellAbove(Cell c)
     {
         if (c == null || c.y == 0)
             return null;
-        return this.board.get(c.y-1).get(c.x);
+        return this.cells[((c.y-1) * 9) + c.x];
     }
 
     public Cell getCellBelow(Cell c)
     {
         if (c.y == 8)
             return null;
-        return this.board.get(c.y+1).get(c.x);
+        return this.cells[((c.y+1) * 9) + c.x];
     }
 
     public Cell getCellRight(Cell c)
     {
         if (c.x == 8)
             return null;
-        return this.board.get(c.y).get(c.x+1);
+        return this.cells[(c.y * 9) + c.x + 1];
     }
 
     public Cell getCellLeft(Cell c)
     {
         if (c.x == 0)
             return null;
-        return this.board.get(c.y).get(c.x-1);
+        return this.cells[(c.y * 9) + c.x - 1];
     }
 
+    // A grid is solved exactly when it is full and no row, column or box repeats a digit
     public boolean checkSolution()
     {
-        for (int i = 0; i < 9; ++i)
-        {
-            for (int j = 0; j < 9; ++j)
-            {
-                if (!isCellValid(this.board.get(j).get(i)))
-                    return false;
-            }
-        }
-        return true;
+        return this.filledCount == 81 && this.conflicts == 0;
     }
 
+    public int getConflictCount()
+    {
+        return this.conflicts;
+    }
+
+    // A filled cell is valid when its value appears only once in each of its row, column and box
     public boolean isCellValid(Cell c)
     {
         if (c == null || c.value == 0)
             return false;
-        return !checkCollisionCells(c);
+
+        int value = c.value;
+        return this.houseCounts[(c.y * 10) + value] == 1
+                && this.houseCounts[((9 + c.x) * 10) + value] == 1
+                && this.houseCounts[((18 + boxOf(c.x, c.y)) * 10) + value] == 1;
     }
 
+    // Only uses the cell's coordinates, so cells of another board with the same layout work too
     public Zone getZoneOfCell(Cell c)
     {
-        for (Zone z : this.zones)
-        {
-            if (z.contains(c))
-                return z;
-        }
-        return null;
+        int index = getZoneIndex(c);
+        return index < 0 ? null : this.zones.get(index);
     }
 
-    // Divides all cells into randomly generated zones
-    public void setBoardZones()
+    // Index into zones of the zone holding the cell, or -1
+    public int getZoneIndex(Cell c)
     {
-        if (zones.size() > 0)
-            zones = new ArrayList<Zone>();
-
-        Cell c = getRandomUnownedCell();
-        Zone z = new Zone();
-        while (c != null)
-        {
-            int zoneSize = z.cells.size();
-            if (zoneSize < 2)
-            {
-                z.add(c);
-                zoneAttrition(z);
-                c = getRandomAdjacentCell(z);
-                if (c == null)
-                {
-                    addZone(z);
-                    z = new Zone();
-                    c = getRandomUnownedCell();
-                }
-            }
-            else if (zoneSize < 5 && rand.nextBoolean())
-            {
-                z.add(c);
-                zoneAttrition(z);
-                c = getRandomAdjacentCell(z);
-                if (c == null)
-                {
-                    addZone(z);
-                    z = new Zone();
-                    c = getRandomUnownedCell();
-                }
-            }
-            else
-            {
-                addZone(z);
-                z = new Zone();
-                c = getRandomUnownedCell();
-            }
-        }
+        return this.cellZones[(c.y * 9) + c.x];
+    }
 
-        int zoneSize = z.cells.size();
-        if (zoneSize > 0)
-        {
-            for (Cell cell : z.cells)
-                markCellOwned(cell);
-            addZone(z);
-        }
+    // Which sides of the cell have a cage wall, as WALL_* bits
+    public int getWallMask(int x, int y)
+    {
+        int zone = this.cellZones[(y * 9) + x];
+        int mask = 0;
+        if (y == 0 || this.cellZones[((y - 1) * 9) + x] != zone)
+            mask |= WALL_TOP;
+        if (x == 8 || this.cellZones[(y * 9) + x + 1] != zone)
+            mask |= WALL_RIGHT;
+        if (y == 8 || this.cellZones[((y + 1) * 9) + x] != zone)
+            mask |= WALL_BOTTOM;
+        if (x == 0 || this.cellZones[(y * 9) + x - 1] != zone)
+            mask |= WALL_LEFT;
+        return mask;
+    }
 
-        // Alter zones to ensure the board has only one solution
-        /*
-        boolean containsLinkedZones = fixLinkedZones();
-        while (containsLinkedZones)
-            containsLinkedZones = fixLinkedZones();
-         */
-        fixLinkedCells();
+    // True if both cells belong to the same zone of this board
+    public boolean inSameZone(Cell a, Cell b)
+    {
+        if (a == null || b == null)
+            return false;
+        int zone = getZoneIndex(a);
+        return zone >= 0 && zone == getZoneIndex(b);
     }
 
-    // Returns how many of a given number are present on the board (e.g. there are seven 9's on the board)
-    public int quantityOfNumber(int num)
+    // Divides all cells into randomly generated zones
+    public void setBoardZones()
     {
-        int total = 0;
-        for (int i = 0; i < 9; ++i)
-        {
-            for (int j = 0; j < 9; ++j)
-            {
-                if (board.get(j).get(i).value == num)
-                    total++;
-            }
-        }
-        return total;
+        setBoardZones(new SplittableRandom());
     }
 
-    public int quantityOfNumber(String num)
+    // Divides all cells into zones drawn from rand. The layout and reveals only depend on the solution and rand,
+    // so a seeded rand reproduces them exactly.
+    public void setBoardZones(SplittableRandom rand)
     {
-        return quantityOfNumber(Integer.valueOf(num));
+        growZones(rand);
+
+        // Reveal cells until the board has only one solution
+        revealAmbiguousCells();
     }
 
-    // true if any cells collide
-    private boolean checkCollisionCells(Cell c)
+    // Divides all cells into zones without revealing anything. Each zone starts at a random unowned cell and grows
+    // into random adjacent unowned cells whose digit it doesn't hold yet: always to 2 cells if it can, then on each
+    // coin flip up to 5.
+    //
+    // Unowned cells live in a pool with swap-remove, and the growing zone keeps a frontier of adjacent unowned cells
+    // plus a mask of its digits. Frontier cells that were taken or whose digit the zone gained since are dropped
+    // when drawn, so every cell enters and leaves each structure at most once per zone and the whole layout is
+    // O(81) with no allocation per step.
+    public void growZones(SplittableRandom rand)
     {
-        // Check rows and columns
-        for (int i = 0; i < 9; ++i)
+        zones = new ArrayList<Zone>();
+        Arrays.fill(cellZones, (byte)-1);
+
+        int[] pool = new int[81];
+        int[] poolIndex = new int[81];
+        for (int i = 0; i < 81; ++i)
         {
-            if (i != c.x && c.equals(this.board.get(c.y).get(i)))
-            {
-                // System.out.println(String.format("Cell (%s,%s) was found to have the same value %s as (%s,%s) from row", i+1, c.y+1, c.value, c.x+1, c.y+1));
-                return true;
-            }
-            if (i != c.y && c.equals(this.board.get(i).get(c.x)))
-            {
-                // System.out.println(String.format("Cell (%s,%s) was found to have the same value %s as (%s,%s) from column", c.x+1, i+1, c.value, c.x+1, c.y+1));
-                return true;
-            }
+            pool[i] = i;
+            poolIndex[i] = i;
+            cells[i].setUnowned();
+            cells[i].reveal = false;
         }
+        int poolSize = 81;
 
-        int lowerXBound = (c.x / 3) * 3;
-        int lowerYBound = (c.y / 3) * 3;
+        int[] frontier = new int[81];
+        int frontierSize = 0;
+        // [cell index] = id + 1 of the last zone whose frontier the cell joined
+        int[] frontierZone = new int[81];
+        int zoneDigits = 0;
 
-
-        // Check 3x3 section
-        for (int y = lowerYBound; y < lowerYBound + 3; ++y)
+        Zone z = new Zone(0);
+        int c = pool[rand.nextInt(poolSize)];
+        while (c != -1)
         {
-            for (int x = lowerXBound; x < lowerXBound + 3; ++x)
+            int zoneSize = z.cells.size();
+            if (zoneSize < 2 || (zoneSize < 5 && rand.nextBoolean()))
             {
-                if ((x != c.x || y != c.y) && c.equals(this.board.get(y).get(x)))
+                Cell cell = cells[c];
+                z.add(cell);
+                cell.owned = true;
+                cell.parent = (byte)z.getId();
+                zoneDigits |= 1 << values[c];
+
+                // Swap-remove from the unowned pool
+                int last = pool[--poolSize];
+                pool[poolIndex[c]] = last;
+                poolIndex[last] = poolIndex[c];
+
+                for (int n : NEIGHBORS[c])
                 {
-                    // System.out.println(String.format("Cell (%s,%s) was found to have the same value %s as (%s,%s) from section", x, y, c.value, c.x, c.y));
-                    return true;
+                    if (!cells[n].owned && frontierZone[n] != z.getId() + 1)
+                    {
+                        frontierZone[n] = z.getId() + 1;
+                        frontier[frontierSize++] = n;
+                    }
+                }
+
+                c = -1;
+                while (frontierSize > 0)
+                {
+                    int k = rand.nextInt(frontierSize);
+                    int n = frontier[k];
+                    if (!cells[n].owned && (zoneDigits & (1 << values[n])) == 0)
+                    {
+                        c = n;
+                        break;
+                    }
+                    frontier[k] = frontier[--frontierSize];
                 }
+                if (c != -1)
+                    continue;
             }
-        }
 
-        return false;
+            addZone(z);
+            z = new Zone(zones.size());
+            frontierSize = 0;
+            zoneDigits = 0;
+            c = poolSize > 0 ? pool[rand.nextInt(poolSize)] : -1;
+        }
     }
 
-    // Fixes multiple solutions for multiple adjacent pairs of cells that are linked into loops
-    private void fixLinkedCells()
+    // Returns how many of a given number are present on the board (e.g. there are seven 9's on the board)
+    public int quantityOfNumber(int num)
     {
-        // HORIZONTAL
-        // i < 8 because we are moving a 2-wide column (x) window
-        for (int x = 0; x < 8; ++x)
-        {
-            // Compare each row (y) against every other row to find linked values
-            // Left and right cells of pairs HAVE to come from the same zone, as separated zones would indicate a separate way to solve the loop
-            for (int y = 0; y < 9; ++y)
-            {
-                Cell left = getCell(x, y);
-                Cell right = getCell(x+1, y);
-
-                checkCellPairForLoops(left, right, true);
-            }
-        }
+        return this.digitCounts[num];
+    }
 
-        // VERTICAL
-        // i < 8 because we are moving a 2-wide column (x) window
-        for (int y = 0; y < 8; ++y)
+    // Index of the first cell at or after from holding digit, or -1 if there is none. Walks the digit's cells in
+    // order without looking at any other cell:
+    //     for (int i = b.nextCellWithValue(d, 0); i != -1; i = b.nextCellWithValue(d, i + 1))
+    public int nextCellWithValue(int digit, int from)
+    {
+        for (int word = from >> 6; word < 2; ++word)
         {
-            // Compare each row (y) against every other row to find linked values
-            // Top and bottom cells of pairs HAVE to come from the same zone, as separate zones would indicate a separate way to solve the loop
-            for (int x = 0; x < 9; ++x)
-            {
-                Cell up = getCell(x, y);
-                Cell down = getCell(x, y+1);
-
-                checkCellPairForLoops(up, down, false);
-            }
+            long bits = this.digitCells[(digit * 2) + word];
+            // Drop the cells before from in its own word
+            if (word == from >> 6)
+                bits &= -1L << from;
+            if (bits != 0)
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
         }
+        return -1;
     }
 
-    // Fixes pairs of cells that sit in all combinations of 3 choose 2 across a row/column of 3x3 sections
-    private void fixCombinationCells()
+    public int quantityOfNumber(String num)
     {
-        // run some sort of check
+        return quantityOfNumber(Integer.valueOf(num));
     }
 
-    // Two pairs of cells are linked they have only 2-3 unique values among them
-    private boolean cellsAreLinked(Cell firstLeft, Cell firstRight, Cell secondLeft, Cell secondRight)
+    private void addToHouse(int house, int value)
     {
-        HashSet<Integer> uniqueValues = new HashSet<>();
-
-        uniqueValues.add(firstLeft.value);
-        uniqueValues.add(firstRight.value);
-        uniqueValues.add(secondLeft.value);
-        uniqueValues.add(secondRight.value);
-
-        return uniqueValues.size() < 4;
+        int index = (house * 10) + value;
+        if (this.houseCounts[index]++ > 0)
+            this.conflicts++;
     }
 
-    // Call with null values for extra cells if you want to see if the loop is closed.
-    // Assumes that cells are brought in as aligned pairs (2x1's)
-    // NEVER call this with newCellOne being null and newCellTwo having a value or vice versa
-    private static boolean cellsHaveLinkedValues(List<Cell> cells, Cell newCellOne, Cell newCellTwo)
+    private void removeFromHouse(int house, int value)
     {
-        HashSet<Integer> uniqueValues = new HashSet<>();
-        int size = cells.size();
-
-        for (Cell c : cells)
-            uniqueValues.add(c.value);
-
-        if (newCellOne != null)
-        {
-            size += 2;
-            uniqueValues.add(newCellOne.value);
-            uniqueValues.add(newCellTwo.value);
-        }
-
-        if (size < 4)
-            return false;
-
-        int checkValue = newCellOne == null ? (size / 2) : (size / 2 ) + 1;
-
-        return uniqueValues.size() <= checkValue;
+        int index = (house * 10) + value;
+        if (--this.houseCounts[index] > 0)
+            this.conflicts--;
     }
 
-    private void checkCellPairForLoops(Cell first, Cell second, boolean horizontal)
+    private static int boxOf(int x, int y)
     {
-        if (!first.isNeighbor(second))
-            return;
-
-        if (first.reveal || second.reveal)
-            return;
-
-        List<Cell> linkedCells = new ArrayList<>();
-        // [row/column index] = [first, second cells]
-        HashMap<Integer, List<Cell>> uncheckedCells = new HashMap<>();
-        linkedCells.add(first);
-        linkedCells.add(second);
+        return ((y / 3) * 3) + (x / 3);
+    }
 
-        // Different horizontal pairs have the same x value, but different y values
-        int check = horizontal ? first.y : first.x;
+    // Reveals cells until the cage layout has exactly one solution. Each reveal is a cell on which two remaining
+    // solutions disagree, and afterwards any reveal made redundant by later ones is hidden again.
+    private void revealAmbiguousCells()
+    {
+        Solver solver = new Solver(this);
+        List<Cell> revealed = new ArrayList<>();
 
-        // Find the FIRST linked pair. This will determine if there exists a possible loop between the rows/columns
-        for (int i = 0; i < 9; ++i)
+        int ambiguous = solver.findAmbiguousCell();
+        while (ambiguous != -1)
         {
-            if (i == check)
-                continue;
-
-            Cell otherFirst = horizontal ? getCell(first.x, i) : getCell(i, first.y);
-            Cell otherSecond = horizontal ? getCell(second.x, i) : getCell(i, second.y);
-
-            if (!otherFirst.isNeighbor(otherSecond))
-                continue;
-
-            if (otherFirst.reveal || otherSecond.reveal)
-                continue;
-
-            if (cellsAreLinked(first, second, otherFirst, otherSecond))
-            {
-                linkedCells.add(otherFirst);
-                linkedCells.add(otherSecond);
-            }
-            else
-            {
-                uncheckedCells.put(i, new ArrayList<Cell>());
-                uncheckedCells.get(i).add(otherFirst);
-                uncheckedCells.get(i).add(otherSecond);
-            }
+            Cell c = this.cells[ambiguous];
+            c.reveal = true;
+            solver.setGiven(ambiguous, c.value);
+            revealed.add(c);
+            ambiguous = solver.findAmbiguousCell();
         }
 
-        // If two pairs are linked in an open loop, keep checking rows until you close the loop or run out of options
-        if (linkedCells.size() > 2)
+        for (int i = revealed.size() - 2; i >= 0; --i)
         {
-            // Shouldn't be possible to run out of unchecked pairs, but it's here for posterity
-            while (uncheckedCells.size() > 0 && !cellsHaveLinkedValues(linkedCells, null, null))
-            {
-                int startSize = linkedCells.size();
-                List<Integer> toRemove = new ArrayList<>();
-
-                for (Integer i : uncheckedCells.keySet())
-                {
-                    Cell uncheckedFirst = uncheckedCells.get(i).get(0);
-                    Cell uncheckedSecond = uncheckedCells.get(i).get(1);
-
-                    // Do NOT remove the pair if it isn't linked, as it may be linked AFTER a different pair has been added to linkedCells
-                    if (cellsHaveLinkedValues(linkedCells, uncheckedFirst, uncheckedSecond))
-                    {
-                        // This loop has already been solved
-                        if (uncheckedFirst.reveal || uncheckedSecond.reveal)
-                            return;
-                        linkedCells.add(uncheckedFirst);
-                        linkedCells.add(uncheckedSecond);
-                        toRemove.add(i);
-                    }
-                }
-                // If none of the unchecked pairs are linked, break out of the loop
-                if (linkedCells.size() == startSize)
-                    break;
-
-                // Remove the newly discovered linked pairs from the unchecked pairs
-                for (Integer i : toRemove)
-                    uncheckedCells.remove(i);
-            }
+            Cell c = revealed.get(i);
+            int index = (c.y * 9) + c.x;
+            solver.setGiven(index, 0);
 
-            // Reveal a cell to converge the loop (if necessary)
-            if (cellsHaveLinkedValues(linkedCells, null, null) && !containsReveal(linkedCells))
-            {
-                Board newBoard = new Board(this);
-                // If swapping the values of the cells of each pair still creates a valid solution, reveal the first linked cell's value to the user
-                for (int i = 0; i < linkedCells.size(); i += 2)
-                {
-                    Cell oldUp = linkedCells.get(i);
-                    Cell oldDown = linkedCells.get(i + 1);
-                    Cell newUp = newBoard.getCell(oldUp.x, oldUp.y);
-                    Cell newDown = newBoard.getCell(oldDown.x, oldDown.y);
-
-                    int swap = newUp.value;
-                    newUp.value = newDown.value;
-                    newDown.value = swap;
-                }
-
-                if (newBoard.checkSolution())
-                {
-                    Cell revealer = linkedCells.get(0);
-                    Cell boardAlter = getCell(revealer.x, revealer.y);
-                    boardAlter.reveal = true;
-                }
-            }
-        }
-    }
-
-    private static boolean containsReveal(List<Cell> cells)
-    {
-        for (Cell c : cells)
-        {
-            if (c.reveal)
-                return true;
+            if (solver.countSolutions(2) == 1)
+                c.reveal = false;
+            else
+                solver.setGiven(index, c.value);
         }
-        return false;
     }
 
 }
@@ -1,43 +1,356 @@
 package com.example.killersudoku.Models;
 
-import com.example.killersudoku.UI.CellState;
-
-import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
+// Game history as a log of user moves with a cursor, kept as per-cell deltas in a fixed-size ring buffer.
+//
+// A move is every cell change between beginMove() and endMove(), e.g. a number tap plus the notes it cleared
+// from its peers. Each change is one packed long holding the cell index, its old and new value, old and new
+// note masks and old and new validity. Moves before the cursor are applied, moves after it can be redone.
+// Undo, redo and jumps only touch the cells of the moves stepped over.
+//
+// The log starts from a base state of all 81 cells. When the buffer is full the oldest move is folded into the
+// base, so memory stays at capacity longs however long the game runs and replay() can always rebuild the board.
+// The move being recorded is never folded, so a single move may hold at most capacity records.
 public class BoardTracker
 {
-    private Stack<Board> states;
-    private Stack<List<CellState>> cellChanges;
+    public static final int DEFAULT_CAPACITY = 4096;
+    // A single move touches at most one cell plus its 20 peers and its cage, so this always holds several moves
+    public static final int MIN_CAPACITY = 64;
+
+    // Record layout, low bits first
+    private static final int CELL_SHIFT = 0;        // 7 bits
+    private static final int OLD_VALUE_SHIFT = 7;   // 4 bits
+    private static final int NEW_VALUE_SHIFT = 11;  // 4 bits
+    private static final int OLD_NOTES_SHIFT = 15;  // 9 bits
+    private static final int NEW_NOTES_SHIFT = 24;  // 9 bits
+    private static final long OLD_VALID_BIT = 1L << 33;
+    private static final long NEW_VALID_BIT = 1L << 34;
+    // Set on the first record of each move
+    private static final long MOVE_START_BIT = 1L << 35;
+
+    // Base cell states packed as value | notes << 4 | valid << 13
+    private static final int BASE_VALID_BIT = 1 << 13;
+
+    private final long[] records;
+    private final int[] base;
+    // Index of the oldest record, number of records held and number of them currently applied
+    private int start;
+    private int size;
+    private int cursor;
+    private int moveCount;
+    private int currentMove;
+    private boolean recording;
+    private boolean moveStarted;
+
+    // Receives the state to apply to each cell while stepping through the history
+    public interface CellRestorer
+    {
+        void restore(int cell, int value, int notes, boolean valid);
+    }
+
+    public BoardTracker()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BoardTracker(int capacity)
+    {
+        if (capacity < MIN_CAPACITY)
+            throw new IllegalArgumentException(String.format("Capacity %s is below the minimum of %s", capacity, MIN_CAPACITY));
+
+        this.records = new long[capacity];
+        this.base = new int[81];
+        clear();
+    }
+
+    // Copies the whole history, e.g. so it can be saved while play continues on the original
+    public BoardTracker(BoardTracker t)
+    {
+        this.records = t.records.clone();
+        this.base = t.base.clone();
+        this.start = t.start;
+        this.size = t.size;
+        this.cursor = t.cursor;
+        this.moveCount = t.moveCount;
+        this.currentMove = t.currentMove;
+    }
+
+    // Writes the capacity, base state and held moves, oldest first
+    public void write(DataOutput out) throws IOException
+    {
+        out.writeInt(records.length);
+        out.writeInt(size);
+        out.writeInt(cursor);
+        out.writeInt(moveCount);
+        out.writeInt(currentMove);
+        for (int state : base)
+            out.writeInt(state);
+        for (int i = 0; i < size; ++i)
+            out.writeLong(records[index(i)]);
+    }
+
+    public static BoardTracker read(DataInput in) throws IOException
+    {
+        int capacity = in.readInt();
+        int size = in.readInt();
+        int cursor = in.readInt();
+        int moveCount = in.readInt();
+        int currentMove = in.readInt();
+        if (capacity < MIN_CAPACITY || size < 0 || size > capacity || cursor < 0 || cursor > size
+                || currentMove < 0 || currentMove > moveCount || moveCount > size)
+            throw new IOException("Corrupt game history");
+
+        BoardTracker t = new BoardTracker(capacity);
+        for (int cell = 0; cell < 81; ++cell)
+        {
+            int state = in.readInt();
+            if ((state & 0xF) > 9 || (state & ~(BASE_VALID_BIT | (0x1FF << 4) | 0xF)) != 0)
+                throw new IOException("Corrupt game history");
+            t.base[cell] = state;
+        }
+
+        // Every record has to name a real cell and digits, the log has to open with a move, and the move starts
+        // have to agree with the counts in the header, including the cursor sitting on a move boundary
+        int moves = 0;
+        int appliedMoves = 0;
+        for (int i = 0; i < size; ++i)
+        {
+            long record = in.readLong();
+            if (cellOf(record) >= 81 || field(record, OLD_VALUE_SHIFT, 0xF) > 9 || field(record, NEW_VALUE_SHIFT, 0xF) > 9
+                    || (record >>> 36) != 0 || (i == 0 && (record & MOVE_START_BIT) == 0))
+                throw new IOException("Corrupt game history");
+
+            if ((record & MOVE_START_BIT) != 0)
+            {
+                moves++;
+                if (i < cursor)
+                    appliedMoves++;
+            }
+            t.records[i] = record;
+        }
+        if (moves != moveCount || appliedMoves != currentMove
+                || (cursor < size && (t.records[cursor] & MOVE_START_BIT) == 0))
+            throw new IOException("Corrupt game history");
+
+        t.size = size;
+        t.cursor = cursor;
+        t.moveCount = moveCount;
+        t.currentMove = currentMove;
+        return t;
+    }
+
+    // Sets the state a cell has before any move, e.g. revealed values and starting notes
+    public void setBase(int cell, int value, int notes, boolean valid)
+    {
+        base[cell] = packBase(value, notes, valid);
+    }
+
+    // Changes recorded from here until endMove() form one move. Changes made outside a move are not tracked.
+    // Starting a move discards any moves that were undone and not redone.
+    public void beginMove()
+    {
+        recording = true;
+        moveStarted = false;
+    }
+
+    public void endMove()
+    {
+        recording = false;
+    }
+
+    // Records one cell changing. cell is y * 9 + x, notes are 9-bit digit masks where bit 0 is the digit 1.
+    // Throws IllegalStateException if the move in progress already fills the whole buffer.
+    public void record(int cell, int oldValue, int newValue, int oldNotes, int newNotes, boolean oldValid, boolean newValid)
+    {
+        if (!recording)
+            return;
+        if (oldValue == newValue && oldNotes == newNotes && oldValid == newValid)
+            return;
+
+        long record = ((long)cell << CELL_SHIFT)
+                | ((long)oldValue << OLD_VALUE_SHIFT)
+                | ((long)newValue << NEW_VALUE_SHIFT)
+                | ((long)oldNotes << OLD_NOTES_SHIFT)
+                | ((long)newNotes << NEW_NOTES_SHIFT)
+                | (oldValid ? OLD_VALID_BIT : 0)
+                | (newValid ? NEW_VALID_BIT : 0);
+
+        if (!moveStarted)
+        {
+            // Branching off an undone state drops the moves that could have been redone
+            size = cursor;
+            moveCount = currentMove;
+
+            record |= MOVE_START_BIT;
+            moveStarted = true;
+            moveCount++;
+            currentMove++;
+        }
+
+        if (size == records.length)
+        {
+            // The move being recorded is always the newest, so if it is also the oldest there is nothing to fold
+            if (moveCount == 1)
+                throw new IllegalStateException(String.format("A single move exceeds the history capacity of %s",
+                        records.length));
+            foldOldestMove();
+        }
+
+        records[index(size)] = record;
+        size++;
+        cursor++;
+    }
+
+    public boolean canUndo()
+    {
+        return currentMove > 0;
+    }
+
+    public boolean canRedo()
+    {
+        return currentMove < moveCount;
+    }
+
+    // Number of moves held, applied or not
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    // Number of moves currently applied, i.e. the position of the cursor
+    public int getCurrentMove()
+    {
+        return currentMove;
+    }
+
+    // Undoes the last applied move, restoring its cells newest change first so each ends at its state before the move.
+    // Returns the index of the cell the move started on, or -1 if there was nothing to undo.
+    public int undo(CellRestorer restorer)
+    {
+        if (currentMove == 0)
+            return -1;
+
+        while (cursor > 0)
+        {
+            cursor--;
+            long record = records[index(cursor)];
+            restorer.restore(cellOf(record), field(record, OLD_VALUE_SHIFT, 0xF), field(record, OLD_NOTES_SHIFT, 0x1FF),
+                    (record & OLD_VALID_BIT) != 0);
+
+            if ((record & MOVE_START_BIT) != 0)
+            {
+                currentMove--;
+                return cellOf(record);
+            }
+        }
+        return -1;
+    }
+
+    // Reapplies the next undone move. Returns the index of the cell the move started on, or -1 if there was nothing to redo.
+    public int redo(CellRestorer restorer)
+    {
+        if (currentMove == moveCount)
+            return -1;
+
+        int first = cellOf(records[index(cursor)]);
+        do
+        {
+            apply(records[index(cursor)], restorer);
+            cursor++;
+        }
+        while (cursor < size && (records[index(cursor)] & MOVE_START_BIT) == 0);
+
+        currentMove++;
+        return first;
+    }
+
+    // Undoes or redoes moves until exactly move moves are applied. Returns the cell of the last move stepped over, or -1.
+    public int jumpTo(int move, CellRestorer restorer)
+    {
+        if (move < 0 || move > moveCount)
+            throw new IndexOutOfBoundsException(String.format("Move %s of %s", move, moveCount));
+
+        int cell = -1;
+        while (currentMove > move)
+            cell = undo(restorer);
+        while (currentMove < move)
+            cell = redo(restorer);
+        return cell;
+    }
+
+    // Rebuilds every cell from the base state plus the applied moves, e.g. to resume or replay a game
+    public void replay(CellRestorer restorer)
+    {
+        for (int cell = 0; cell < 81; ++cell)
+        {
+            int state = base[cell];
+            restorer.restore(cell, state & 0xF, (state >> 4) & 0x1FF, (state & BASE_VALID_BIT) != 0);
+        }
+
+        for (int i = 0; i < cursor; ++i)
+            apply(records[index(i)], restorer);
+    }
+
+    // Forgets all moves and resets the base to empty, valid cells
+    public void clear()
+    {
+        start = 0;
+        size = 0;
+        cursor = 0;
+        moveCount = 0;
+        currentMove = 0;
+        recording = false;
+
+        for (int cell = 0; cell < 81; ++cell)
+            base[cell] = BASE_VALID_BIT;
+    }
+
+    // Frees space by moving the oldest move's new states into the base. Only called while appending at the end of
+    // the log with at least one move before the one being recorded, so the oldest move is always applied and complete.
+    private void foldOldestMove()
+    {
+        do
+        {
+            long record = records[start];
+            base[cellOf(record)] = packBase(field(record, NEW_VALUE_SHIFT, 0xF), field(record, NEW_NOTES_SHIFT, 0x1FF),
+                    (record & NEW_VALID_BIT) != 0);
+
+            start = (start + 1) % records.length;
+            size--;
+            cursor--;
+        }
+        while (size > 0 && (records[start] & MOVE_START_BIT) == 0);
+
+        moveCount--;
+        currentMove--;
+    }
 
-    public BoardTracker(Board b)
+    private int index(int i)
     {
-        this.states = new Stack<>();
-        this.cellChanges = new Stack<>();
+        return (start + i) % records.length;
     }
 
-    public Board getLastBoardState()
+    private static void apply(long record, CellRestorer restorer)
     {
-        if (states.size() > 0)
-            return states.pop();
-        return null;
+        restorer.restore(cellOf(record), field(record, NEW_VALUE_SHIFT, 0xF), field(record, NEW_NOTES_SHIFT, 0x1FF),
+                (record & NEW_VALID_BIT) != 0);
     }
 
-    public void saveBoardState(Board b)
+    private static int packBase(int value, int notes, boolean valid)
     {
-        Board x = new Board(b);
-        x.cloneZones(b);
-        states.push(x);
+        return value | (notes << 4) | (valid ? BASE_VALID_BIT : 0);
     }
 
-    public List<CellState> getLastCellChanges()
+    private static int cellOf(long record)
     {
-        if (cellChanges.size() > 0)
-            return cellChanges.pop();
-        return new ArrayList<CellState>();
+        return field(record, CELL_SHIFT, 0x7F);
     }
 
-    public void saveCellChanges(List<CellState> changes)
+    private static int field(long record, int shift, int mask)
     {
-        cellChanges.push(changes);
+        return (int)(record >>> shift) & mask;
     }
 }
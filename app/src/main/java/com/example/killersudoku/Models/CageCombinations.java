@@ -0,0 +1,93 @@
+package com.example.killersudoku.Models;
+
+import java.util.*;
+
+// Every set of distinct digits a cage can hold, indexed by cage sum and cage size and computed once.
+// Digit sets are 9-bit masks where bit 0 is the digit 1.
+public final class CageCombinations
+{
+    private static final int FULL_MASK = 0x1FF;
+    private static final int MAX_SUM = 45;
+    private static final int[] NONE = new int[0];
+
+    // [sum][size] = digit masks, in increasing mask order
+    private static final int[][][] COMBINATIONS = new int[MAX_SUM + 1][10][];
+    // [sum][size] = digits found in at least one / in every combination
+    private static final int[][] POSSIBLE = new int[MAX_SUM + 1][10];
+    private static final int[][] REQUIRED = new int[MAX_SUM + 1][10];
+
+    static
+    {
+        int[][] counts = new int[MAX_SUM + 1][10];
+        for (int mask = 1; mask <= FULL_MASK; ++mask)
+            counts[sumOf(mask)][Integer.bitCount(mask)]++;
+
+        for (int sum = 0; sum <= MAX_SUM; ++sum)
+        {
+            for (int size = 0; size <= 9; ++size)
+            {
+                COMBINATIONS[sum][size] = counts[sum][size] == 0 ? NONE : new int[counts[sum][size]];
+                REQUIRED[sum][size] = counts[sum][size] == 0 ? 0 : FULL_MASK;
+                counts[sum][size] = 0;
+            }
+        }
+
+        for (int mask = 1; mask <= FULL_MASK; ++mask)
+        {
+            int sum = sumOf(mask);
+            int size = Integer.bitCount(mask);
+            COMBINATIONS[sum][size][counts[sum][size]++] = mask;
+            POSSIBLE[sum][size] |= mask;
+            REQUIRED[sum][size] &= mask;
+        }
+    }
+
+    private CageCombinations()
+    {
+    }
+
+    // Every digit mask of the given size adding up to sum. The returned array is shared and must not be modified.
+    public static int[] get(int sum, int size)
+    {
+        if (!inRange(sum, size))
+            return NONE;
+        return COMBINATIONS[sum][size];
+    }
+
+    public static int count(int sum, int size)
+    {
+        return get(sum, size).length;
+    }
+
+    // Union of all combinations: the digits that could appear in the cage
+    public static int possibleDigits(int sum, int size)
+    {
+        if (!inRange(sum, size))
+            return 0;
+        return POSSIBLE[sum][size];
+    }
+
+    // Intersection of all combinations: the digits that must appear in the cage
+    public static int requiredDigits(int sum, int size)
+    {
+        if (!inRange(sum, size))
+            return 0;
+        return REQUIRED[sum][size];
+    }
+
+    public static int sumOf(int mask)
+    {
+        int sum = 0;
+        for (int digit = 1; digit <= 9; ++digit)
+        {
+            if ((mask & (1 << (digit - 1))) != 0)
+                sum += digit;
+        }
+        return sum;
+    }
+
+    private static boolean inRange(int sum, int size)
+    {
+        return sum >= 0 && sum <= MAX_SUM && size >= 0 && size <= 9;
+    }
+}
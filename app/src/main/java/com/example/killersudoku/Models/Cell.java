@@ -2,11 +2,14 @@ package com.example.killersudoku.Models;
 
 public class Cell
 {
+    public static final byte NO_PARENT = -1;
+
     public int x;
     public int y;
     public int value;
     public boolean owned;
-    public String parent;
+    // Index of the owning zone, or NO_PARENT
+    public byte parent;
     public boolean valid;
     // Cheater field for telling the UI that this cell should be revealed before the game starts
     public boolean reveal;
@@ -17,7 +20,7 @@ public class Cell
         this.y = y;
         this.value = value;
         this.owned = false;
-        this.parent = "";
+        this.parent = NO_PARENT;
         this.valid = true;
         this.reveal = false;
     }
@@ -40,13 +43,13 @@ public class Cell
     // Checks if two cells are from the same zone
     public boolean isNeighbor(Cell neighbor)
     {
-        return (!neighbor.owned) || (neighbor.parent.equals(this.parent));
+        return (!neighbor.owned) || (neighbor.parent == this.parent);
     }
 
     public void setUnowned()
     {
         this.owned = false;
-        this.parent = "";
+        this.parent = NO_PARENT;
     }
 
     public boolean equals(Cell c)
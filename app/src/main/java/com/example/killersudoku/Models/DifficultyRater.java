@@ -0,0 +1,616 @@
+package com.example.killersudoku.Models;
+
+import java.util.*;
+
+// Rates a cage layout by solving it the way a person would: candidates are only ever removed by named Killer
+// techniques, always trying the easiest technique first and going back to it after every step. The score adds
+// up the weight of every step, so it grows both with the hardest technique needed and with how often the harder
+// techniques are needed. A layout the techniques can't finish is rated as unsolved.
+//
+// Cages are the real cages plus the innie cages of the 45 rule, built the same way as Solver's, and the outie cages
+// of the same rule: the cells that the cages touching a house have outside it add up to those cages' totals minus 45.
+// An instance reuses its working arrays, so it must only be used by one thread at a time.
+public class DifficultyRater
+{
+    // Techniques in the order they are tried, easiest first
+    public static final int NAKED_SINGLE = 0;
+    public static final int HIDDEN_SINGLE = 1;
+    public static final int CAGE_COMBINATION = 2;
+    public static final int RULE_OF_45 = 3;
+    public static final int CAGE_HOUSE_INTERACTION = 4;
+    public static final int NAKED_SUBSET = 5;
+    public static final int HIDDEN_SUBSET = 6;
+    public static final int TECHNIQUE_COUNT = 7;
+
+    private static final String[] TECHNIQUE_NAMES = {
+        "naked single", "hidden single", "cage combination", "rule of 45", "cage/house interaction",
+        "naked subset", "hidden subset"
+    };
+    private static final int[] TECHNIQUE_WEIGHTS = { 1, 2, 3, 5, 8, 12, 15 };
+    // Added to the score of a layout the techniques get stuck on
+    public static final int UNSOLVED_PENALTY = 200;
+
+    private static final int FULL_MASK = 0x1FF;
+    // Largest naked or hidden subset looked for
+    private static final int MAX_SUBSET = 3;
+
+    // Real cages come first, then the innie and outie cages
+    private final int realCageCount;
+    private final int cageCount;
+    private final int[][] cageCells;
+    private final int[] cageTotals;
+    // [cell] = every cage (real or innie) the cell belongs to
+    private final int[][] cellCages;
+    // [cell] = the real cage holding the cell
+    private final int[] cellCage;
+    private final int[] givens;
+
+    private final int[] values;
+    // [cell] = digits still possible in an empty cell as a 9-bit mask, 0 once the cell has a value
+    private final int[] candidates;
+    private final int[] cageUsed;
+    private final int[] cageSum;
+    private final int[] cageLeft;
+    private final int[] cageAllowed;
+    private final int[] cageRequired;
+    private final int[] histogram;
+    private final int[] subsetCells;
+
+    // The outcome of rating one layout
+    public static class Rating
+    {
+        public final int score;
+        public final boolean solved;
+        // [technique] = how many steps used it
+        public final int[] histogram;
+        // [cell index] = the value the techniques placed there (or revealed), 0 where they got stuck
+        public final int[] values;
+
+        private Rating(int score, boolean solved, int[] histogram, int[] values)
+        {
+            this.score = score;
+            this.solved = solved;
+            this.histogram = histogram;
+            this.values = values;
+        }
+
+        // Hardest technique used, or -1 if the layout needed none (everything was revealed)
+        public int getHardestTechnique()
+        {
+            for (int t = TECHNIQUE_COUNT - 1; t >= 0; --t)
+            {
+                if (histogram[t] > 0)
+                    return t;
+            }
+            return -1;
+        }
+
+        @Override public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("score=%s solved=%s", score, solved));
+            for (int t = 0; t < TECHNIQUE_COUNT; ++t)
+            {
+                if (histogram[t] > 0)
+                    sb.append(String.format(" %s=%s", TECHNIQUE_NAMES[t], histogram[t]));
+            }
+            return sb.toString();
+        }
+    }
+
+    public DifficultyRater(Board b)
+    {
+        this(Solver.cageLayoutOf(b), Solver.cageTotalsOf(b), Solver.revealedValuesOf(b));
+    }
+
+    // cellCage[i] is the cage index of cell i, givens[i] is a revealed value or 0
+    public DifficultyRater(int[] cellCage, int[] cageTotals, int[] givens)
+    {
+        this.cellCage = cellCage.clone();
+        this.givens = givens.clone();
+
+        List<int[]> cells = new ArrayList<>();
+        List<Integer> totals = new ArrayList<>();
+        Solver.addRealCages(cellCage, cageTotals, cells, totals);
+        Solver.addInnieCages(cellCage, cageTotals, cells, totals);
+        addOutieCages(cellCage, cageTotals, cells, totals);
+
+        this.realCageCount = cageTotals.length;
+        this.cageCount = cells.size();
+        this.cageCells = cells.toArray(new int[cageCount][]);
+        this.cageTotals = totals.stream().mapToInt(Integer::intValue).toArray();
+
+        int[] memberships = new int[81];
+        for (int[] cage : cageCells)
+        {
+            for (int i : cage)
+                memberships[i]++;
+        }
+        this.cellCages = new int[81][];
+        for (int i = 0; i < 81; ++i)
+            this.cellCages[i] = new int[memberships[i]];
+        Arrays.fill(memberships, 0);
+        for (int c = 0; c < cageCount; ++c)
+        {
+            for (int i : cageCells[c])
+                this.cellCages[i][memberships[i]++] = c;
+        }
+
+        this.values = new int[81];
+        this.candidates = new int[81];
+        this.cageUsed = new int[cageCount];
+        this.cageSum = new int[cageCount];
+        this.cageLeft = new int[cageCount];
+        this.cageAllowed = new int[cageCount];
+        this.cageRequired = new int[cageCount];
+        this.histogram = new int[TECHNIQUE_COUNT];
+        this.subsetCells = new int[MAX_SUBSET];
+    }
+
+    public static String getTechniqueName(int technique)
+    {
+        return TECHNIQUE_NAMES[technique];
+    }
+
+    public static int getTechniqueWeight(int technique)
+    {
+        return TECHNIQUE_WEIGHTS[technique];
+    }
+
+    public Rating rate()
+    {
+        Arrays.fill(histogram, 0);
+        boolean solved = initialState() && solveLogically();
+
+        int score = solved ? 0 : UNSOLVED_PENALTY;
+        for (int t = 0; t < TECHNIQUE_COUNT; ++t)
+            score += histogram[t] * TECHNIQUE_WEIGHTS[t];
+        return new Rating(score, solved, histogram.clone(), values.clone());
+    }
+
+    // Applies the easiest technique that makes progress until the grid is full or none does.
+    // Returns true if the grid was completed.
+    private boolean solveLogically()
+    {
+        while (true)
+        {
+            int empty = 0;
+            for (int i = 0; i < 81; ++i)
+            {
+                if (values[i] != 0)
+                    continue;
+                if (candidates[i] == 0)
+                    return false;
+                empty++;
+            }
+            if (empty == 0)
+                return true;
+
+            updateCages();
+
+            int technique = 0;
+            while (technique < TECHNIQUE_COUNT && !apply(technique))
+                technique++;
+            if (technique == TECHNIQUE_COUNT)
+                return false;
+            histogram[technique]++;
+        }
+    }
+
+    private boolean apply(int technique)
+    {
+        switch (technique)
+        {
+            case NAKED_SINGLE:
+                return nakedSingles();
+            case HIDDEN_SINGLE:
+                return hiddenSingles();
+            case CAGE_COMBINATION:
+                return restrictToCageCombinations(0, realCageCount);
+            case RULE_OF_45:
+                return restrictToCageCombinations(realCageCount, cageCount);
+            case CAGE_HOUSE_INTERACTION:
+                return cageHouseInteractions();
+            case NAKED_SUBSET:
+                return nakedSubsets();
+            default:
+                return hiddenSubsets();
+        }
+    }
+
+    // Places the givens, false if they already conflict
+    private boolean initialState()
+    {
+        Arrays.fill(values, 0);
+        Arrays.fill(candidates, FULL_MASK);
+        Arrays.fill(cageUsed, 0);
+        for (int c = 0; c < cageCount; ++c)
+        {
+            cageSum[c] = cageTotals[c];
+            cageLeft[c] = cageCells[c].length;
+        }
+
+        for (int i = 0; i < 81; ++i)
+        {
+            int value = givens[i];
+            if (value == 0)
+                continue;
+            if ((candidates[i] & (1 << (value - 1))) == 0)
+                return false;
+            place(i, value);
+        }
+        return true;
+    }
+
+    private void place(int cell, int value)
+    {
+        int bit = 1 << (value - 1);
+        values[cell] = value;
+        candidates[cell] = 0;
+        for (int peer : Board.getPeers(cell % 9, cell / 9))
+            candidates[peer] &= ~bit;
+
+        for (int c : cellCages[cell])
+        {
+            cageUsed[c] |= bit;
+            cageSum[c] -= value;
+            cageLeft[c]--;
+            // No other cell of a cage can repeat the digit
+            for (int i : cageCells[c])
+                candidates[i] &= ~bit;
+        }
+    }
+
+    // A cell with one candidate left takes it
+    private boolean nakedSingles()
+    {
+        boolean progress = false;
+        for (int i = 0; i < 81; ++i)
+        {
+            int options = candidates[i];
+            if (values[i] == 0 && options != 0 && (options & (options - 1)) == 0)
+            {
+                place(i, Integer.numberOfTrailingZeros(options) + 1);
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    // A digit with one possible cell left in a row, column or box goes there
+    private boolean hiddenSingles()
+    {
+        boolean progress = false;
+        for (int[] house : Solver.HOUSES)
+        {
+            int once = 0;
+            int more = 0;
+            for (int i : house)
+            {
+                more |= once & candidates[i];
+                once |= candidates[i];
+            }
+
+            int hidden = once & ~more;
+            for (int i : house)
+            {
+                int bit = candidates[i] & hidden;
+                if (bit != 0 && (bit & (bit - 1)) == 0)
+                {
+                    place(i, Integer.numberOfTrailingZeros(bit) + 1);
+                    progress = true;
+                }
+            }
+        }
+        return progress;
+    }
+
+    // Recomputes the digits each cage can still use (the union of its viable combinations) and the digits it must
+    // use (their intersection). A combination is viable if it avoids the cage's placed digits and every one of its
+    // digits is a candidate of some empty cage cell.
+    private void updateCages()
+    {
+        for (int c = 0; c < cageCount; ++c)
+        {
+            int left = cageLeft[c];
+            if (left == 0)
+            {
+                cageAllowed[c] = 0;
+                cageRequired[c] = 0;
+                continue;
+            }
+
+            int placeable = 0;
+            for (int i : cageCells[c])
+                placeable |= candidates[i];
+
+            int blocked = cageUsed[c] | ~placeable;
+            int allowed = 0;
+            int required = FULL_MASK;
+            for (int combination : CageCombinations.get(cageSum[c], left))
+            {
+                if ((combination & blocked) == 0)
+                {
+                    allowed |= combination;
+                    required &= combination;
+                }
+            }
+            cageAllowed[c] = allowed;
+            cageRequired[c] = allowed == 0 ? 0 : required;
+        }
+    }
+
+    // Cells of cages [from, to) lose digits outside their cage's viable combinations, and a digit the cage must use
+    // that only fits one of its cells is pinned there
+    private boolean restrictToCageCombinations(int from, int to)
+    {
+        boolean progress = false;
+        for (int c = from; c < to; ++c)
+        {
+            if (cageLeft[c] == 0)
+                continue;
+
+            int once = 0;
+            int more = 0;
+            for (int i : cageCells[c])
+            {
+                if (values[i] != 0)
+                    continue;
+                int options = candidates[i] & cageAllowed[c];
+                progress |= options != candidates[i];
+                candidates[i] = options;
+                more |= once & options;
+                once |= options;
+            }
+
+            int pinned = cageRequired[c] & once & ~more;
+            for (int i : cageCells[c])
+            {
+                int bit = candidates[i] & pinned;
+                if (bit != 0 && candidates[i] != bit)
+                {
+                    candidates[i] = bit;
+                    progress = true;
+                }
+            }
+        }
+        return progress;
+    }
+
+    // If every cell a cage could put one of its required digits in shares a house, no other cell of that house can
+    // hold the digit. Likewise, if every cell a house could put a digit in lies in one cage, no other cell of that
+    // cage can hold it.
+    private boolean cageHouseInteractions()
+    {
+        boolean progress = false;
+        for (int c = 0; c < realCageCount; ++c)
+        {
+            int required = cageRequired[c];
+            while (required != 0)
+            {
+                int bit = required & -required;
+                required ^= bit;
+
+                int shared = -1;
+                boolean found = false;
+                for (int i : cageCells[c])
+                {
+                    if ((candidates[i] & bit) != 0)
+                    {
+                        shared &= houseBits(i);
+                        found = true;
+                    }
+                }
+                if (!found)
+                    continue;
+                for (int h = 0; shared != 0 && h < 27; ++h)
+                {
+                    if ((shared & (1 << h)) == 0)
+                        continue;
+                    for (int i : Solver.HOUSES[h])
+                    {
+                        if (cellCage[i] != c && (candidates[i] & bit) != 0)
+                        {
+                            candidates[i] &= ~bit;
+                            progress = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int[] house : Solver.HOUSES)
+        {
+            for (int bit = 1; bit <= (1 << 8); bit <<= 1)
+            {
+                int cage = -1;
+                for (int i : house)
+                {
+                    if ((candidates[i] & bit) == 0)
+                        continue;
+                    if (cage == -1)
+                        cage = cellCage[i];
+                    else if (cage != cellCage[i])
+                    {
+                        cage = -2;
+                        break;
+                    }
+                }
+                if (cage < 0)
+                    continue;
+
+                for (int i : cageCells[cage])
+                {
+                    if (!inHouse(house, i) && (candidates[i] & bit) != 0)
+                    {
+                        candidates[i] &= ~bit;
+                        progress = true;
+                    }
+                }
+            }
+        }
+        return progress;
+    }
+
+    // k empty cells of a house whose candidates add up to only k digits take those digits from the rest of the house
+    private boolean nakedSubsets()
+    {
+        boolean progress = false;
+        for (int[] house : Solver.HOUSES)
+        {
+            for (int size = 2; size <= MAX_SUBSET; ++size)
+                progress |= nakedSubsets(house, size, 0, 0, 0);
+        }
+        return progress;
+    }
+
+    private boolean nakedSubsets(int[] house, int size, int depth, int start, int union)
+    {
+        if (depth == size)
+        {
+            if (Integer.bitCount(union) != size)
+                return false;
+
+            boolean progress = false;
+            for (int i : house)
+            {
+                if (values[i] != 0 || contains(subsetCells, size, i) || (candidates[i] & union) == 0)
+                    continue;
+                candidates[i] &= ~union;
+                progress = true;
+            }
+            return progress;
+        }
+
+        boolean progress = false;
+        for (int slot = start; slot < 9; ++slot)
+        {
+            int i = house[slot];
+            int next = union | candidates[i];
+            if (values[i] != 0 || Integer.bitCount(next) > size)
+                continue;
+            subsetCells[depth] = i;
+            progress |= nakedSubsets(house, size, depth + 1, slot + 1, next);
+        }
+        return progress;
+    }
+
+    // k digits of a house that only fit in the same k cells leave those cells no other candidates
+    private boolean hiddenSubsets()
+    {
+        boolean progress = false;
+        int[] positions = new int[9];
+        for (int[] house : Solver.HOUSES)
+        {
+            // [digit - 1] = house slots the digit fits in, as a 9-bit mask
+            for (int d = 0; d < 9; ++d)
+            {
+                positions[d] = 0;
+                for (int slot = 0; slot < 9; ++slot)
+                {
+                    if ((candidates[house[slot]] & (1 << d)) != 0)
+                        positions[d] |= 1 << slot;
+                }
+            }
+
+            for (int size = 2; size <= MAX_SUBSET; ++size)
+                progress |= hiddenSubsets(house, positions, size, 0, 0, 0, 0);
+        }
+        return progress;
+    }
+
+    private boolean hiddenSubsets(int[] house, int[] positions, int size, int depth, int start, int digits, int slots)
+    {
+        if (depth == size)
+        {
+            if (Integer.bitCount(slots) != size)
+                return false;
+
+            boolean progress = false;
+            for (int slot = 0; slot < 9; ++slot)
+            {
+                int i = house[slot];
+                if ((slots & (1 << slot)) != 0 && (candidates[i] & ~digits) != 0)
+                {
+                    candidates[i] &= digits;
+                    progress = true;
+                }
+            }
+            return progress;
+        }
+
+        boolean progress = false;
+        for (int d = start; d < 9; ++d)
+        {
+            int next = slots | positions[d];
+            // Placed digits have no positions left and single positions are hidden singles
+            if (Integer.bitCount(positions[d]) < 2 || Integer.bitCount(next) > size)
+                continue;
+            progress |= hiddenSubsets(house, positions, size, depth + 1, d + 1, digits | (1 << d), next);
+        }
+        return progress;
+    }
+
+    // Adds one cage per house for the cells that the cages touching the house have outside it. Kept only when those
+    // cells all share a row, column or box, since a cage can't hold a repeated digit.
+    private static void addOutieCages(int[] cellCage, int[] cageTotals, List<int[]> cells, List<Integer> totals)
+    {
+        int realCount = cageTotals.length;
+        boolean[] touches = new boolean[realCount];
+        int[] outside = new int[81];
+        for (int[] house : Solver.HOUSES)
+        {
+            Arrays.fill(touches, false);
+            int total = 0;
+            for (int i : house)
+            {
+                if (!touches[cellCage[i]])
+                    total += cageTotals[cellCage[i]];
+                touches[cellCage[i]] = true;
+            }
+
+            int count = 0;
+            int shared = -1;
+            for (int c = 0; c < realCount; ++c)
+            {
+                if (!touches[c])
+                    continue;
+                for (int i : cells.get(c))
+                {
+                    if (inHouse(house, i))
+                        continue;
+                    outside[count++] = i;
+                    shared &= houseBits(i);
+                }
+            }
+
+            if (count > 0 && shared != 0)
+            {
+                cells.add(Arrays.copyOf(outside, count));
+                totals.add(total - 45);
+            }
+        }
+    }
+
+    // The row, column and box of a cell as bits of a house mask
+    private static int houseBits(int cell)
+    {
+        int[] houses = Solver.HOUSES_OF_CELL[cell];
+        return (1 << houses[0]) | (1 << houses[1]) | (1 << houses[2]);
+    }
+
+    private static boolean inHouse(int[] house, int cell)
+    {
+        return contains(house, house.length, cell);
+    }
+
+    private static boolean contains(int[] cells, int count, int cell)
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            if (cells[i] == cell)
+                return true;
+        }
+        return false;
+    }
+}
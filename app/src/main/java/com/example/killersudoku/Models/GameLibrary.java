@@ -0,0 +1,126 @@
+package com.example.killersudoku.Models;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Read-only, random-access library of finished puzzles: solution, cage layout, reveals and difficulty, so a game
+// can start without generating anything. Built offline by the benchmarks module's GameLibraryBuilder.
+//
+// Layout (big-endian): a 16 byte header of magic, format version, record count and record size, followed by the
+// records. A record holds the solution packed as a PuzzleLibrary record (32 bytes), the zone index of every cell
+// (81 bytes), the reveal flags as an 81-bit set (11 bytes, cell 0 in the high bit of the first byte), the
+// DifficultyRater score (2 bytes) and 2 bytes of padding.
+public class GameLibrary
+{
+    public static final int MAGIC = 0x4B53474C; // "KSGL"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 128;
+
+    private static final int ZONES_OFFSET = PuzzleLibrary.RECORD_SIZE;
+    private static final int REVEALS_OFFSET = ZONES_OFFSET + 81;
+    private static final int SCORE_OFFSET = REVEALS_OFFSET + 11;
+
+    private final ByteBuffer records;
+    private final int recordCount;
+
+    // Maps the library found at [offset, offset + length) of the channel. The mapping stays valid after the channel
+    // is closed.
+    public GameLibrary(FileChannel channel, long offset, long length) throws IOException
+    {
+        this(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    public GameLibrary(ByteBuffer buffer) throws IOException
+    {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a game library");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException(String.format("Unsupported game library version %s", buffer.getInt(4)));
+        if (buffer.getInt(12) != RECORD_SIZE)
+            throw new IOException(String.format("Unexpected record size %s", buffer.getInt(12)));
+
+        this.recordCount = buffer.getInt(8);
+        if (buffer.remaining() < HEADER_SIZE + ((long)recordCount * RECORD_SIZE))
+            throw new IOException("Game library is truncated");
+        this.records = buffer;
+    }
+
+    public int size()
+    {
+        return recordCount;
+    }
+
+    // Returns record index as a solution board with its zones and reveals set, as setBoardZones() would leave it
+    public Board getBoard(int index)
+    {
+        byte[] record = getRecord(index);
+
+        byte[] solution = new byte[PuzzleLibrary.RECORD_SIZE];
+        System.arraycopy(record, 0, solution, 0, solution.length);
+        Board board = new Board(PuzzleLibrary.decode(solution));
+
+        byte[] layout = new byte[81];
+        System.arraycopy(record, ZONES_OFFSET, layout, 0, 81);
+        board.loadZones(layout);
+
+        for (int i = 0; i < 81; ++i)
+            board.getCell(i % 9, i / 9).reveal = (record[REVEALS_OFFSET + (i / 8)] & (0x80 >> (i % 8))) != 0;
+        return board;
+    }
+
+    public int getScore(int index)
+    {
+        checkIndex(index);
+        return records.getShort(HEADER_SIZE + (index * RECORD_SIZE) + SCORE_OFFSET) & 0xFFFF;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= recordCount)
+            throw new IndexOutOfBoundsException(String.format("Record %s of %s", index, recordCount));
+    }
+
+    private byte[] getRecord(int index)
+    {
+        checkIndex(index);
+
+        byte[] record = new byte[RECORD_SIZE];
+        int start = HEADER_SIZE + (index * RECORD_SIZE);
+        // Absolute gets, so concurrent readers never disturb each other's position
+        for (int i = 0; i < RECORD_SIZE; ++i)
+            record[i] = records.get(start + i);
+        return record;
+    }
+
+    // Packs a board with its zones and reveals set into record[offset, offset + RECORD_SIZE)
+    public static void encode(Board board, int score, byte[] record, int offset)
+    {
+        StringBuilder solution = new StringBuilder(81);
+        for (int i = 0; i < 81; ++i)
+            solution.append((char)('0' + board.getCell(i % 9, i / 9).value));
+        byte[] packed = PuzzleLibrary.encode(solution.toString());
+        System.arraycopy(packed, 0, record, offset, packed.length);
+
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell c = board.getCell(i % 9, i / 9);
+            record[offset + ZONES_OFFSET + i] = (byte)board.getZoneIndex(c);
+            if (c.reveal)
+                record[offset + REVEALS_OFFSET + (i / 8)] |= (byte)(0x80 >> (i % 8));
+        }
+
+        int clamped = Math.min(score, 0xFFFF);
+        record[offset + SCORE_OFFSET] = (byte)(clamped >> 8);
+        record[offset + SCORE_OFFSET + 1] = (byte)clamped;
+    }
+
+    public static void writeHeader(DataOutput out, int count) throws IOException
+    {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        out.writeInt(RECORD_SIZE);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.killersudoku.Models;
+
+import java.io.*;
+
+// Everything needed to resume a game without generating anything: the solution, the cage layout, the reveals,
+// what the user has entered and the move history.
+//
+// Binary layout (big-endian): magic, format version, puzzle number (8 bytes, since version 2), then 81 cells of
+// solution digit, zone index, user value, note mask (2 bytes) and flags (reveal, valid), then the BoardTracker
+// history.
+public class GameSnapshot
+{
+    public static final int MAGIC = 0x4B534753; // "KSGS"
+    public static final int VERSION = 2;
+
+    private static final int REVEAL_FLAG = 1;
+    private static final int VALID_FLAG = 2;
+
+    // Seed the game was generated from, 0 for games saved before puzzle numbers existed
+    public final long seed;
+    public final String solution;
+    // [cell index] = zone index
+    public final byte[] cellZones;
+    public final boolean[] reveals;
+    public final int[] values;
+    public final int[] notes;
+    public final boolean[] valid;
+    public final BoardTracker history;
+
+    public GameSnapshot(long seed, String solution, byte[] cellZones, boolean[] reveals, int[] values, int[] notes,
+                        boolean[] valid, BoardTracker history)
+    {
+        this.seed = seed;
+        this.solution = solution;
+        this.cellZones = cellZones;
+        this.reveals = reveals;
+        this.values = values;
+        this.notes = notes;
+        this.valid = valid;
+        this.history = history;
+    }
+
+    // The solution board with its zones and reveals, as setBoardZones() left it
+    public Board createBoard()
+    {
+        Board board = new Board(solution);
+        board.loadZones(cellZones);
+        for (int i = 0; i < 81; ++i)
+            board.getCell(i % 9, i / 9).reveal = reveals[i];
+        return board;
+    }
+
+    // The user board sharing the solution board's layout, holding the saved user values and notes
+    public Board createUserBoard(Board board)
+    {
+        Board userBoard = new Board("");
+        userBoard.cloneZones(board);
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell c = userBoard.getCell(i % 9, i / 9);
+            userBoard.setValue(c, values[i]);
+            userBoard.setNotes(c.x, c.y, notes[i]);
+            c.valid = valid[i];
+        }
+        return userBoard;
+    }
+
+    public void write(OutputStream stream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(seed);
+
+        for (int i = 0; i < 81; ++i)
+        {
+            out.writeByte(solution.charAt(i) - '0');
+            out.writeByte(cellZones[i]);
+            out.writeByte(values[i]);
+            out.writeShort(notes[i]);
+            out.writeByte((reveals[i] ? REVEAL_FLAG : 0) | (valid[i] ? VALID_FLAG : 0));
+        }
+
+        history.write(out);
+        out.flush();
+    }
+
+    public static GameSnapshot read(InputStream stream) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a saved game");
+        int version = in.readInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException(String.format("Unsupported saved game version %s", version));
+        long seed = version >= 2 ? in.readLong() : 0;
+
+        char[] solution = new char[81];
+        byte[] cellZones = new byte[81];
+        // Zone indices used, so a layout with an empty zone can be rejected
+        long[] usedZones = new long[2];
+        boolean[] reveals = new boolean[81];
+        int[] values = new int[81];
+        int[] notes = new int[81];
+        boolean[] valid = new boolean[81];
+
+        for (int i = 0; i < 81; ++i)
+        {
+            int digit = in.readUnsignedByte();
+            cellZones[i] = in.readByte();
+            values[i] = in.readUnsignedByte();
+            notes[i] = in.readUnsignedShort();
+            int flags = in.readUnsignedByte();
+
+            if (digit < 1 || digit > 9 || values[i] > 9 || cellZones[i] < 0 || cellZones[i] >= 81 || notes[i] > 0x1FF)
+                throw new IOException(String.format("Corrupt saved game at cell %s", i));
+
+            usedZones[cellZones[i] >> 6] |= 1L << (cellZones[i] & 63);
+            solution[i] = (char)('0' + digit);
+            reveals[i] = (flags & REVEAL_FLAG) != 0;
+            valid[i] = (flags & VALID_FLAG) != 0;
+        }
+
+        // The zone indices must be exactly 0..n-1 with no gaps, since Board.loadZones() creates a zone for each
+        int zoneCount = Long.bitCount(usedZones[0]) + Long.bitCount(usedZones[1]);
+        int highest = usedZones[1] != 0 ? 127 - Long.numberOfLeadingZeros(usedZones[1])
+                : 63 - Long.numberOfLeadingZeros(usedZones[0]);
+        if (highest != zoneCount - 1)
+            throw new IOException("Corrupt saved game: unused zone index");
+
+        BoardTracker history = BoardTracker.read(in);
+        return new GameSnapshot(seed, new String(solution), cellZones, reveals, values, notes, valid, history);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.killersudoku.Models;
+
+import java.util.*;
+
+// Generates random solved sudoku grids by randomized backtracking over bitmask candidate sets.
+// The grid only depends on the random source, so a seeded SplittableRandom reproduces it exactly.
+// An instance reuses its working arrays, so it must only be used by one thread at a time.
+public class GridGenerator
+{
+    private static final int FULL_MASK = 0x1FF;
+
+    // The three diagonal boxes never constrain each other, so they are filled first without any checks
+    private static final int[] DIAGONAL_BOXES = { 0, 4, 8 };
+
+    private final SplittableRandom rand;
+    private final int[] values;
+    private final int[] rowMasks;
+    private final int[] columnMasks;
+    private final int[] boxMasks;
+    // [step] = the cell filled at that step and the candidates not yet tried there
+    private final int[] filledCells;
+    private final int[] untried;
+
+    public GridGenerator()
+    {
+        this(new SplittableRandom());
+    }
+
+    public GridGenerator(SplittableRandom rand)
+    {
+        this.rand = rand;
+        this.values = new int[81];
+        this.rowMasks = new int[9];
+        this.columnMasks = new int[9];
+        this.boxMasks = new int[9];
+        this.filledCells = new int[81];
+        this.untried = new int[81];
+    }
+
+    // Returns a new solution as the 81 character string used by new Board(String)
+    public String generate()
+    {
+        return generate(rand);
+    }
+
+    // Like generate(), drawing from the given random source instead of the generator's own
+    public String generate(SplittableRandom rand)
+    {
+        fill(rand);
+
+        char[] output = new char[81];
+        for (int i = 0; i < 81; ++i)
+            output[i] = (char)('0' + values[i]);
+        return new String(output);
+    }
+
+    private void fill(SplittableRandom rand)
+    {
+        Arrays.fill(values, 0);
+        Arrays.fill(rowMasks, 0);
+        Arrays.fill(columnMasks, 0);
+        Arrays.fill(boxMasks, 0);
+
+        for (int box : DIAGONAL_BOXES)
+        {
+            for (int i = 0; i < 9; ++i)
+            {
+                int cell = ((((box / 3) * 3) + (i / 3)) * 9) + ((box % 3) * 3) + (i % 3);
+                set(cell, Integer.numberOfTrailingZeros(randomBit(rand, candidatesOf(cell))) + 1);
+            }
+        }
+
+        // Fill the rest depth first, always continuing from the empty cell with the fewest candidates
+        int step = 0;
+        if (!chooseCell(step))
+            return;
+
+        while (true)
+        {
+            int options = untried[step];
+            if (options == 0)
+            {
+                // Dead end, step back and try the previous cell's next candidate
+                --step;
+                clear(filledCells[step]);
+                continue;
+            }
+
+            int bit = randomBit(rand, options);
+            untried[step] = options ^ bit;
+            set(filledCells[step], Integer.numberOfTrailingZeros(bit) + 1);
+
+            if (!chooseCell(++step))
+                return;
+        }
+    }
+
+    // Picks the most constrained empty cell for the given step, false if the grid is already full
+    private boolean chooseCell(int step)
+    {
+        int best = -1;
+        int bestCount = 10;
+        int bestOptions = 0;
+
+        for (int cell = 0; cell < 81 && bestCount > 0; ++cell)
+        {
+            if (values[cell] != 0)
+                continue;
+
+            int options = candidatesOf(cell);
+            int count = Integer.bitCount(options);
+            if (count < bestCount)
+            {
+                best = cell;
+                bestCount = count;
+                bestOptions = options;
+            }
+        }
+
+        if (best == -1)
+            return false;
+
+        filledCells[step] = best;
+        untried[step] = bestOptions;
+        return true;
+    }
+
+    // Picks one set bit uniformly at random
+    private static int randomBit(SplittableRandom rand, int options)
+    {
+        int skip = rand.nextInt(Integer.bitCount(options));
+        for (int i = 0; i < skip; ++i)
+            options &= options - 1;
+        return options & -options;
+    }
+
+    private int candidatesOf(int cell)
+    {
+        int x = cell % 9;
+        int y = cell / 9;
+        return ~(rowMasks[y] | columnMasks[x] | boxMasks[boxOf(x, y)]) & FULL_MASK;
+    }
+
+    private void set(int cell, int value)
+    {
+        int x = cell % 9;
+        int y = cell / 9;
+        int bit = 1 << (value - 1);
+
+        values[cell] = value;
+        rowMasks[y] |= bit;
+        columnMasks[x] |= bit;
+        boxMasks[boxOf(x, y)] |= bit;
+    }
+
+    private void clear(int cell)
+    {
+        int x = cell % 9;
+        int y = cell / 9;
+        int bit = ~(1 << (values[cell] - 1));
+
+        values[cell] = 0;
+        rowMasks[y] &= bit;
+        columnMasks[x] &= bit;
+        boxMasks[boxOf(x, y)] &= bit;
+    }
+
+    private static int boxOf(int x, int y)
+    {
+        return ((y / 3) * 3) + (x / 3);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.killersudoku.Models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counts solutions like Solver.countSolutions, but spreads the search tree over a fork-join pool. Meant for the
+// pathological layouts (many large cages, few reveals) whose uniqueness proof takes far longer than usual; an
+// ordinary layout is proven in a handful of nodes and is cheaper to check on the calling thread.
+//
+// The first SPLIT_DEPTH branching cells are expanded into one task per candidate, and below that every task runs a
+// sequential Solver over its subtree. Idle workers steal the subtrees still queued. All workers share one solution
+// counter, so every one of them stops as soon as the limit (a second solution, for a uniqueness proof) is reached.
+public class ParallelSolver
+{
+    // Branching levels expanded into tasks. Subtrees vary a lot in size, so this leaves several tasks per worker.
+    private static final int SPLIT_DEPTH = 5;
+
+    private final ForkJoinPool pool;
+
+    public ParallelSolver(int threads)
+    {
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public int getThreads()
+    {
+        return pool.getParallelism();
+    }
+
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    public Solver.SolutionCount countSolutions(Board b, int limit)
+    {
+        return countSolutions(new Solver(b), limit, 0);
+    }
+
+    // Counts the solutions of layout's cages and givens up to limit, giving up after maxNanos (0 for no time limit).
+    // Only the layout is read, so the same Solver can be passed from several threads.
+    public Solver.SolutionCount countSolutions(Solver layout, int limit, long maxNanos)
+    {
+        long start = System.nanoTime();
+        Search search = new Search(layout, limit, maxNanos == 0 ? 0 : start + maxNanos);
+
+        int[] state = new Solver(layout).startState();
+        if (state != null)
+            pool.invoke(new SearchTask(search, state, 0));
+
+        return new Solver.SolutionCount(Math.min(search.solutions.get(), limit), limit, search.nodes.get(),
+                search.backtracks.get(), System.nanoTime() - start, search.exhausted);
+    }
+
+    // What the tasks of one countSolutions call share
+    private static class Search
+    {
+        final Solver layout;
+        final int limit;
+        final long deadline;
+        final AtomicInteger solutions = new AtomicInteger();
+        final AtomicLong nodes = new AtomicLong();
+        final AtomicLong backtracks = new AtomicLong();
+        volatile boolean exhausted;
+
+        Search(Solver layout, int limit, long deadline)
+        {
+            this.layout = layout;
+            this.limit = limit;
+            this.deadline = deadline;
+        }
+
+        boolean finished()
+        {
+            return exhausted || solutions.get() >= limit;
+        }
+    }
+
+    // Searches the subtree below state, splitting it into one task per candidate of its branching cell until
+    // SPLIT_DEPTH is reached
+    private static class SearchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int[] state;
+        private final int depth;
+
+        SearchTask(Search search, int[] state, int depth)
+        {
+            this.search = search;
+            this.state = state;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (search.finished())
+                return;
+
+            Solver solver = new Solver(search.layout);
+            if (depth == SPLIT_DEPTH)
+            {
+                solver.searchSubtree(state, search.limit, search.deadline, search.solutions);
+                search.nodes.addAndGet(solver.getNodes());
+                search.backtracks.addAndGet(solver.getBacktracks());
+                if (solver.isExhausted())
+                    search.exhausted = true;
+                return;
+            }
+
+            if (search.deadline != 0 && System.nanoTime() - search.deadline > 0)
+            {
+                search.exhausted = true;
+                return;
+            }
+
+            search.nodes.incrementAndGet();
+            int best = solver.expand(state);
+            if (best == -1)
+            {
+                search.backtracks.incrementAndGet();
+                return;
+            }
+            if (best == 81)
+            {
+                search.solutions.incrementAndGet();
+                return;
+            }
+
+            List<SearchTask> children = new ArrayList<>();
+            int options = solver.candidatesOf(best);
+            while (options != 0)
+            {
+                int bit = options & -options;
+                options ^= bit;
+                int[] next = solver.branch(state, best, Integer.numberOfTrailingZeros(bit) + 1);
+                children.add(new SearchTask(search, next, depth + 1));
+            }
+            invokeAll(children);
+        }
+    }
+}
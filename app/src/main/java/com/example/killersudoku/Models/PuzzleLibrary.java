@@ -0,0 +1,178 @@
+package com.example.killersudoku.Models;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+// Read-only, random-access library of solved sudoku grids stored as fixed-size binary records.
+//
+// Layout (big-endian): a 16 byte header of magic, format version, record count and record size, followed by the
+// records. A record packs the top-left 8x8 digits of a grid at 4 bits per digit (high nibble first). The last
+// column and last row are not stored since each row and column of a solved grid adds up to 45.
+public class PuzzleLibrary
+{
+    public static final int MAGIC = 0x4B53504C; // "KSPL"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 32;
+
+    private final ByteBuffer records;
+    private final int recordCount;
+
+    // Maps the library found at [offset, offset + length) of the channel, e.g. an uncompressed APK asset.
+    // The mapping stays valid after the channel is closed.
+    public PuzzleLibrary(FileChannel channel, long offset, long length) throws IOException
+    {
+        this(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    public PuzzleLibrary(ByteBuffer buffer) throws IOException
+    {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a puzzle library");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException(String.format("Unsupported puzzle library version %s", buffer.getInt(4)));
+        if (buffer.getInt(12) != RECORD_SIZE)
+            throw new IOException(String.format("Unexpected record size %s", buffer.getInt(12)));
+
+        this.recordCount = buffer.getInt(8);
+        if (buffer.remaining() < HEADER_SIZE + ((long)recordCount * RECORD_SIZE))
+            throw new IOException("Puzzle library is truncated");
+        this.records = buffer;
+    }
+
+    public int size()
+    {
+        return recordCount;
+    }
+
+    // Returns record index as the 81 character solution string used by new Board(String)
+    public String getSolution(int index)
+    {
+        if (index < 0 || index >= recordCount)
+            throw new IndexOutOfBoundsException(String.format("Record %s of %s", index, recordCount));
+
+        byte[] record = new byte[RECORD_SIZE];
+        int start = HEADER_SIZE + (index * RECORD_SIZE);
+        // Absolute gets, so concurrent readers never disturb each other's position
+        for (int i = 0; i < RECORD_SIZE; ++i)
+            record[i] = records.get(start + i);
+        return decode(record);
+    }
+
+    public static String decode(byte[] record)
+    {
+        char[] output = new char[81];
+        int[] columnTotals = new int[9];
+
+        for (int y = 0; y < 8; ++y)
+        {
+            int rowTotal = 0;
+            for (int x = 0; x < 8; ++x)
+            {
+                int digit = (y * 8) + x;
+                int packed = record[digit / 2];
+                int value = (digit % 2 == 0) ? (packed >> 4) & 0xF : packed & 0xF;
+
+                output[(y * 9) + x] = (char)('0' + value);
+                rowTotal += value;
+                columnTotals[x] += value;
+            }
+            int last = 45 - rowTotal;
+            output[(y * 9) + 8] = (char)('0' + last);
+            columnTotals[8] += last;
+        }
+
+        for (int x = 0; x < 9; ++x)
+            output[72 + x] = (char)('0' + (45 - columnTotals[x]));
+
+        return new String(output);
+    }
+
+    // Packs a solved grid. The whole grid is checked first, since the last row and column are only derived on decode.
+    public static byte[] encode(String solution)
+    {
+        if (solution.length() != 81)
+            throw new IllegalArgumentException(String.format("Expected 81 digits, got %s", solution.length()));
+
+        for (int i = 0; i < 81; ++i)
+        {
+            int value = solution.charAt(i) - '0';
+            if (value < 1 || value > 9)
+                throw new IllegalArgumentException(String.format("Invalid digit at (%s,%s)", (i % 9) + 1, (i / 9) + 1));
+        }
+        for (int[] house : Solver.HOUSES)
+        {
+            int seen = 0;
+            for (int i : house)
+                seen |= 1 << (solution.charAt(i) - '1');
+            if (seen != 0x1FF)
+                throw new IllegalArgumentException("Not a solved grid");
+        }
+
+        byte[] record = new byte[RECORD_SIZE];
+        for (int y = 0; y < 8; ++y)
+        {
+            for (int x = 0; x < 8; ++x)
+            {
+                int value = solution.charAt((y * 9) + x) - '0';
+                int digit = (y * 8) + x;
+                if (digit % 2 == 0)
+                    record[digit / 2] |= (byte)(value << 4);
+                else
+                    record[digit / 2] |= (byte)value;
+            }
+        }
+        return record;
+    }
+
+    // Converts the text format (one 81 digit solution per line) to a library file. Returns the record count.
+    public static int convert(File textFile, File libraryFile) throws IOException
+    {
+        int count = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(textFile));
+             RandomAccessFile output = new RandomAccessFile(libraryFile, "rw"))
+        {
+            output.setLength(0);
+            output.write(new byte[HEADER_SIZE]);
+
+            // Writes through the file's own channel, which closing output closes as well
+            OutputStream records = new BufferedOutputStream(Channels.newOutputStream(output.getChannel()), 1 << 16);
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+                records.write(encode(line));
+                count++;
+            }
+            records.flush();
+
+            output.seek(0);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(count);
+            output.writeInt(RECORD_SIZE);
+        }
+
+        return count;
+    }
+
+    // Usage: PuzzleLibrary <validSudokuGames.txt> <validSudokuGames.bin>
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.out.println("Usage: PuzzleLibrary <solutions.txt> <library.bin>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        int count = convert(new File(args[0]), new File(args[1]));
+        System.out.printf("Wrote %s puzzles to %s in %sms%n", count, args[1], (System.nanoTime() - start) / 1000000);
+    }
+}
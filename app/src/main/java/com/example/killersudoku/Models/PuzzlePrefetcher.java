@@ -0,0 +1,194 @@
+package com.example.killersudoku.Models;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Generates upcoming games on a background thread so that starting a new game only has to take one that is ready.
+// A take() that finds nothing ready counts as a miss and generates the game on the calling thread instead.
+//
+// Every game is generated from its own 64-bit seed (its puzzle number), and generate(seed) always rebuilds the
+// same game from it.
+public class PuzzlePrefetcher
+{
+    // Each generating thread keeps its own grid generator, since generators reuse their arrays
+    private static final ThreadLocal<GridGenerator> GENERATORS = new ThreadLocal<GridGenerator>() {
+        @Override protected GridGenerator initialValue()
+        {
+            return new GridGenerator();
+        }
+    };
+
+    // Source of puzzle numbers, only used under the prefetcher's lock
+    private final SplittableRandom seeds;
+    private final int capacity;
+    private final BlockingQueue<Game> ready;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight;
+
+    private final AtomicInteger hits;
+    private final AtomicInteger misses;
+    private final AtomicInteger generated;
+    private final AtomicLong generationNanos;
+    private volatile long lastGenerationNanos;
+
+    // A solution board with its zones set, plus the empty user board sharing its layout and the layout's rating
+    public static class Game
+    {
+        public final long seed;
+        public final String solution;
+        public final Board board;
+        public final Board userBoard;
+        public final DifficultyRater.Rating rating;
+
+        private Game(long seed, String solution, Board board, Board userBoard, DifficultyRater.Rating rating)
+        {
+            this.seed = seed;
+            this.solution = solution;
+            this.board = board;
+            this.userBoard = userBoard;
+            this.rating = rating;
+        }
+    }
+
+    public PuzzlePrefetcher(SplittableRandom seeds, int capacity)
+    {
+        this(seeds, capacity, Executors.newSingleThreadExecutor(runnable -> {
+            Thread t = new Thread(runnable, "PuzzlePrefetcher");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }));
+    }
+
+    // Generates in the background on executor, which shutdown() stops
+    public PuzzlePrefetcher(SplittableRandom seeds, int capacity, ExecutorService executor)
+    {
+        this.seeds = seeds;
+        this.capacity = capacity;
+        this.ready = new ArrayBlockingQueue<>(capacity);
+        this.executor = executor;
+        this.inFlight = new AtomicInteger();
+
+        this.hits = new AtomicInteger();
+        this.misses = new AtomicInteger();
+        this.generated = new AtomicInteger();
+        this.generationNanos = new AtomicLong();
+
+        refill();
+    }
+
+    // Returns the next game, preferring one generated in the background
+    public Game take()
+    {
+        Game game = ready.poll();
+        if (game != null)
+            hits.incrementAndGet();
+        else
+        {
+            misses.incrementAndGet();
+            game = generateTimed(nextSeed());
+        }
+
+        refill();
+        return game;
+    }
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    // Games generated in the background and waiting to be taken
+    public int getReadyCount()
+    {
+        return ready.size();
+    }
+
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    public int getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getLastGenerationNanos()
+    {
+        return lastGenerationNanos;
+    }
+
+    public long getAverageGenerationNanos()
+    {
+        int count = generated.get();
+        return count == 0 ? 0 : generationNanos.get() / count;
+    }
+
+    @Override public String toString()
+    {
+        return String.format("hits=%s misses=%s lastGeneration=%sms averageGeneration=%sms",
+                getHits(), getMisses(), lastGenerationNanos / 1000000.0, getAverageGenerationNanos() / 1000000.0);
+    }
+
+    // Queues enough background generations to fill every free slot
+    private void refill()
+    {
+        while (!executor.isShutdown() && ready.size() + inFlight.get() < capacity)
+        {
+            inFlight.incrementAndGet();
+            try
+            {
+                executor.execute(() -> {
+                    try
+                    {
+                        ready.offer(generateTimed(nextSeed()));
+                    }
+                    finally
+                    {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private synchronized long nextSeed()
+    {
+        return seeds.nextLong();
+    }
+
+    private Game generateTimed(long seed)
+    {
+        long start = System.nanoTime();
+        Game game = generate(seed);
+
+        long elapsed = System.nanoTime() - start;
+        lastGenerationNanos = elapsed;
+        generationNanos.addAndGet(elapsed);
+        generated.incrementAndGet();
+        return game;
+    }
+
+    // Builds the game with the given puzzle number. The solution and the layout draw from one SplittableRandom
+    // seeded with it, so the same seed always gives the same game.
+    public static Game generate(long seed)
+    {
+        SplittableRandom rand = new SplittableRandom(seed);
+        String solution = GENERATORS.get().generate(rand);
+        Board board = new Board(solution);
+        Board userBoard = new Board("");
+        board.setBoardZones(rand);
+        userBoard.cloneZones(board);
+        DifficultyRater.Rating rating = new DifficultyRater(board).rate();
+
+        return new Game(seed, solution, board, userBoard, rating);
+    }
+}
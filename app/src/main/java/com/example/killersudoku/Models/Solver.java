@@ -0,0 +1,719 @@
+package com.example.killersudoku.Models;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Killer Sudoku solver working purely on cage layout and cage totals (plus any revealed cells).
+// Besides the real cages, every row, column and box contributes an "innie" cage from the 45 rule: the cells of
+// the house not covered by cages lying entirely inside it must add up to 45 minus those cages' totals.
+// Each search depth keeps its own copy of the packed state so backtracking never allocates.
+public class Solver
+{
+    private static final int FULL_MASK = 0x1FF;
+    // The clock is only read every this many nodes (a power of two), since nanoTime costs more than a node
+    private static final int CLOCK_INTERVAL = 1024;
+
+    // Cell indices of each row (0-8), column (9-17) and box (18-26)
+    static final int[][] HOUSES = buildHouses();
+    // [cell] = the row, column and box house indices of that cell
+    static final int[][] HOUSES_OF_CELL = buildHousesOfCell();
+
+    // Real cages come first, followed by the innie cages derived from them
+    private final int cageCount;
+    private final int[][] cageCells;
+    private final int[] cageTotals;
+    // [cell] = every cage (real or innie) the cell belongs to
+    private final int[][] cellCages;
+    private final int[] givens;
+
+    // Packed state layout: [0, 81) cell values, then 27 house masks, then per cage the used digit mask,
+    // remaining sum and remaining empty cells
+    private final int houseOffset;
+    private final int cageUsedOffset;
+    private final int cageSumOffset;
+    private final int cageLeftOffset;
+    private final int[][] stack;
+    private final int[] cageAllowed;
+    private final int[] cageRequired;
+    private final int[] candidates;
+
+    private int[] solution;
+    private int[] secondSolution;
+    private int solutionCount;
+    private int solutionLimit;
+    // Solutions found by every worker of a ParallelSolver search, null for a search of our own
+    private AtomicInteger sharedSolutions;
+
+    // Search counters and budget of the last run
+    private long nodes;
+    private long backtracks;
+    private long nodeBudget;
+    private long deadline;
+    private boolean exhausted;
+
+    // Outcome of countSolutions(Board, ...): how many solutions were found and what the search cost
+    public static class SolutionCount
+    {
+        // Solutions found, at most the limit. A lower bound when the budget ran out.
+        public final int solutions;
+        public final int limit;
+        // Search calls made, and how many of them ended in a contradiction
+        public final long nodes;
+        public final long backtracks;
+        public final long nanos;
+        // True if the node or time budget ran out before the search finished
+        public final boolean exhausted;
+
+        SolutionCount(int solutions, int limit, long nodes, long backtracks, long nanos, boolean exhausted)
+        {
+            this.solutions = solutions;
+            this.limit = limit;
+            this.nodes = nodes;
+            this.backtracks = backtracks;
+            this.nanos = nanos;
+            this.exhausted = exhausted;
+        }
+
+        // Exactly one solution, proven by a finished search
+        public boolean isUnique()
+        {
+            return solutions == 1 && !exhausted;
+        }
+
+        // True if the count is exact: the search either finished or stopped at the limit
+        public boolean isComplete()
+        {
+            return !exhausted || solutions >= limit;
+        }
+
+        @Override public String toString()
+        {
+            return String.format("solutions=%s%s limit=%s nodes=%s backtracks=%s time=%sus%s", solutions,
+                    isComplete() ? "" : "+", limit, nodes, backtracks, nanos / 1000, exhausted ? " (budget exhausted)" : "");
+        }
+    }
+
+    public Solver(Board b)
+    {
+        this(cageLayoutOf(b), cageTotalsOf(b), revealedValuesOf(b));
+    }
+
+    // cellCage[i] is the cage index of cell i, givens[i] is a known value or 0
+    public Solver(int[] cellCage, int[] cageTotals, int[] givens)
+    {
+        this.givens = givens.clone();
+
+        List<int[]> cells = new ArrayList<>();
+        List<Integer> totals = new ArrayList<>();
+        addRealCages(cellCage, cageTotals, cells, totals);
+        addInnieCages(cellCage, cageTotals, cells, totals);
+
+        this.cageCount = cells.size();
+        this.cageCells = cells.toArray(new int[cageCount][]);
+        this.cageTotals = totals.stream().mapToInt(Integer::intValue).toArray();
+
+        int[] memberships = new int[81];
+        for (int[] cage : cageCells)
+        {
+            for (int i : cage)
+                memberships[i]++;
+        }
+        this.cellCages = new int[81][];
+        for (int i = 0; i < 81; ++i)
+            this.cellCages[i] = new int[memberships[i]];
+        Arrays.fill(memberships, 0);
+        for (int c = 0; c < cageCount; ++c)
+        {
+            for (int i : cageCells[c])
+                this.cellCages[i][memberships[i]++] = c;
+        }
+
+        this.houseOffset = 81;
+        this.cageUsedOffset = houseOffset + 27;
+        this.cageSumOffset = cageUsedOffset + cageCount;
+        this.cageLeftOffset = cageSumOffset + cageCount;
+        // Deeper levels are allocated the first time the search reaches them
+        this.stack = new int[82][];
+        this.stack[0] = new int[cageLeftOffset + cageCount];
+        this.cageAllowed = new int[cageCount];
+        this.cageRequired = new int[cageCount];
+        this.candidates = new int[81];
+    }
+
+    // A solver for the same layout and givens with its own search state, so it can run alongside the original
+    Solver(Solver layout)
+    {
+        this.givens = layout.givens.clone();
+        this.cageCount = layout.cageCount;
+        this.cageCells = layout.cageCells;
+        this.cageTotals = layout.cageTotals;
+        this.cellCages = layout.cellCages;
+
+        this.houseOffset = layout.houseOffset;
+        this.cageUsedOffset = layout.cageUsedOffset;
+        this.cageSumOffset = layout.cageSumOffset;
+        this.cageLeftOffset = layout.cageLeftOffset;
+        this.stack = new int[82][];
+        this.stack[0] = new int[cageLeftOffset + cageCount];
+        this.cageAllowed = new int[cageCount];
+        this.cageRequired = new int[cageCount];
+        this.candidates = new int[81];
+    }
+
+    // Counts the solutions of a board's cage layout and reveals, stopping at limit. A limit of 2 proves uniqueness,
+    // higher limits are for diagnostics.
+    public static SolutionCount countSolutions(Board b, int limit)
+    {
+        return new Solver(b).countSolutions(limit, Long.MAX_VALUE, 0);
+    }
+
+    // Like countSolutions(Board, int), but gives up after maxNodes search calls or maxNanos of search time
+    // (0 for no time limit), marking the result as exhausted
+    public static SolutionCount countSolutions(Board b, int limit, long maxNodes, long maxNanos)
+    {
+        return new Solver(b).countSolutions(limit, maxNodes, maxNanos);
+    }
+
+    public SolutionCount countSolutions(int limit, long maxNodes, long maxNanos)
+    {
+        long start = System.nanoTime();
+        run(limit, maxNodes, maxNanos == 0 ? 0 : start + maxNanos);
+        return new SolutionCount(solutionCount, limit, nodes, backtracks, System.nanoTime() - start, exhausted);
+    }
+
+    // Returns the first solution found as 81 values, or null if the layout cannot be solved
+    public int[] solve()
+    {
+        run(1);
+        return solutionCount > 0 ? solution.clone() : null;
+    }
+
+    // Counts solutions, stopping as soon as limit is reached (a limit of 2 is enough to prove uniqueness)
+    public int countSolutions(int limit)
+    {
+        run(limit);
+        return solutionCount;
+    }
+
+    // Returns a cell whose value differs between two solutions, or -1 if the layout has at most one solution
+    public int findAmbiguousCell()
+    {
+        run(2);
+        if (solutionCount < 2)
+            return -1;
+
+        for (int i = 0; i < 81; ++i)
+        {
+            if (solution[i] != secondSolution[i])
+                return i;
+        }
+        return -1;
+    }
+
+    // Fixes (or with a value of 0, clears) a known cell value for subsequent searches
+    public void setGiven(int cell, int value)
+    {
+        givens[cell] = value;
+    }
+
+    // The packed state before any search, or null if the givens already conflict
+    int[] startState()
+    {
+        int[] s = new int[stack[0].length];
+        return initialState(s) ? s : null;
+    }
+
+    // Propagates s in place. Returns -1 on contradiction, 81 when the grid is complete, otherwise the cell to branch
+    // on, whose candidates are then given by candidatesOf().
+    int expand(int[] s)
+    {
+        return propagate(s);
+    }
+
+    int candidatesOf(int cell)
+    {
+        return candidates[cell];
+    }
+
+    // A copy of s with value placed in cell
+    int[] branch(int[] s, int cell, int value)
+    {
+        int[] next = s.clone();
+        place(next, cell, value);
+        return next;
+    }
+
+    // Searches the subtree below s as one worker of a parallel search, stopping once shared reaches limit
+    void searchSubtree(int[] s, int limit, long deadline, AtomicInteger shared)
+    {
+        this.solution = null;
+        this.secondSolution = null;
+        this.solutionCount = 0;
+        this.solutionLimit = limit;
+        this.sharedSolutions = shared;
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.nodeBudget = Long.MAX_VALUE;
+        this.deadline = deadline;
+        this.exhausted = false;
+
+        System.arraycopy(s, 0, stack[0], 0, s.length);
+        search(0);
+    }
+
+    long getNodes()
+    {
+        return nodes;
+    }
+
+    long getBacktracks()
+    {
+        return backtracks;
+    }
+
+    boolean isExhausted()
+    {
+        return exhausted;
+    }
+
+    private void run(int limit)
+    {
+        run(limit, Long.MAX_VALUE, 0);
+    }
+
+    // deadline is a System.nanoTime() value, or 0 for none
+    private void run(int limit, long maxNodes, long deadline)
+    {
+        this.solution = null;
+        this.secondSolution = null;
+        this.solutionCount = 0;
+        this.solutionLimit = limit;
+        this.sharedSolutions = null;
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.nodeBudget = maxNodes;
+        this.deadline = deadline;
+        this.exhausted = false;
+
+        if (!initialState(stack[0]))
+            return;
+        search(0);
+    }
+
+    // Builds the starting state from the cage totals and givens, false if the givens already conflict
+    private boolean initialState(int[] s)
+    {
+        Arrays.fill(s, 0);
+        for (int c = 0; c < cageCount; ++c)
+        {
+            s[cageSumOffset + c] = cageTotals[c];
+            s[cageLeftOffset + c] = cageCells[c].length;
+        }
+
+        for (int i = 0; i < 81; ++i)
+        {
+            int value = givens[i];
+            if (value == 0)
+                continue;
+
+            int bit = 1 << (value - 1);
+            if (((houseMask(s, i) | cageUsedMask(s, i)) & bit) != 0)
+                return false;
+            place(s, i, value);
+            for (int c : cellCages[i])
+            {
+                if (s[cageSumOffset + c] < 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private void search(int depth)
+    {
+        if (nodes == nodeBudget
+                || (deadline != 0 && (nodes & (CLOCK_INTERVAL - 1)) == 0 && System.nanoTime() - deadline > 0))
+        {
+            exhausted = true;
+            return;
+        }
+        nodes++;
+
+        int[] s = stack[depth];
+
+        int best = propagate(s);
+        if (best == -1)
+        {
+            backtracks++;
+            return;
+        }
+
+        if (best == 81)
+        {
+            if (solutionCount == 0)
+                solution = Arrays.copyOf(s, 81);
+            else if (solutionCount == 1)
+                secondSolution = Arrays.copyOf(s, 81);
+            solutionCount++;
+            if (sharedSolutions != null)
+                sharedSolutions.incrementAndGet();
+            return;
+        }
+
+        int options = candidates[best];
+        if (stack[depth + 1] == null)
+            stack[depth + 1] = new int[s.length];
+        int[] next = stack[depth + 1];
+        while (options != 0 && !finished())
+        {
+            int bit = options & -options;
+            options ^= bit;
+
+            System.arraycopy(s, 0, next, 0, s.length);
+            place(next, best, Integer.numberOfTrailingZeros(bit) + 1);
+            search(depth + 1);
+        }
+    }
+
+    // True once the limit has been reached, by this search or any other worker sharing its count, or the budget has
+    // run out
+    private boolean finished()
+    {
+        int found = sharedSolutions == null ? solutionCount : sharedSolutions.get();
+        return exhausted || found >= solutionLimit;
+    }
+
+    // Applies naked singles, hidden singles in houses and hidden singles of required cage digits until nothing changes.
+    // Returns -1 on contradiction, 81 when the grid is complete, otherwise the empty cell with the fewest candidates.
+    private int propagate(int[] s)
+    {
+        while (true)
+        {
+            for (int c = 0; c < cageCount; ++c)
+                updateCage(s, c);
+
+            boolean progress = false;
+            int best = 81;
+            int bestCount = 10;
+
+            for (int i = 0; i < 81; ++i)
+            {
+                if (s[i] != 0)
+                {
+                    candidates[i] = 0;
+                    continue;
+                }
+
+                int options = cellOptions(s, i);
+                if (options == 0)
+                    return -1;
+
+                if ((options & (options - 1)) == 0)
+                {
+                    placeAndUpdate(s, i, options);
+                    candidates[i] = 0;
+                    progress = true;
+                    continue;
+                }
+
+                candidates[i] = options;
+                int count = Integer.bitCount(options);
+                if (count < bestCount)
+                {
+                    best = i;
+                    bestCount = count;
+                }
+            }
+
+            if (progress)
+                continue;
+            if (best == 81)
+                return 81;
+
+            int hidden = placeHiddenSingles(s);
+            if (hidden == -1)
+                return -1;
+            if (hidden == 0)
+                return best;
+        }
+    }
+
+    // Places every hidden single found in one sweep. Returns how many were placed, or -1 on contradiction.
+    // A forced digit that has been blocked by an earlier placement in the same sweep is also a contradiction.
+    private int placeHiddenSingles(int[] s)
+    {
+        int placed = 0;
+        for (int h = 0; h < 27; ++h)
+        {
+            int[] house = HOUSES[h];
+            int once = 0;
+            int more = 0;
+            for (int i : house)
+            {
+                more |= once & candidates[i];
+                once |= candidates[i];
+            }
+            if ((once | s[houseOffset + h]) != FULL_MASK)
+                return -1;
+
+            int result = placeHidden(s, house, once & ~more);
+            if (result == -1)
+                return -1;
+            placed += result;
+        }
+
+        for (int c = 0; c < cageCount; ++c)
+        {
+            int required = cageRequired[c];
+            if (required == 0)
+                continue;
+
+            int[] cage = cageCells[c];
+            int once = 0;
+            int more = 0;
+            for (int i : cage)
+            {
+                more |= once & candidates[i];
+                once |= candidates[i];
+            }
+            if ((once & required) != required)
+                return -1;
+
+            int result = placeHidden(s, cage, required & ~more);
+            if (result == -1)
+                return -1;
+            placed += result;
+        }
+        return placed;
+    }
+
+    private int placeHidden(int[] s, int[] cells, int hidden)
+    {
+        int placed = 0;
+        while (hidden != 0)
+        {
+            int bit = hidden & -hidden;
+            hidden ^= bit;
+            int value = Integer.numberOfTrailingZeros(bit) + 1;
+
+            for (int i : cells)
+            {
+                if ((candidates[i] & bit) == 0)
+                    continue;
+
+                // Already filled earlier in this sweep, either by this same forced digit or by a conflicting one
+                if (s[i] != 0)
+                {
+                    if (s[i] != value)
+                        return -1;
+                    break;
+                }
+                if ((cellOptions(s, i) & bit) == 0)
+                    return -1;
+
+                placeAndUpdate(s, i, bit);
+                placed++;
+                break;
+            }
+        }
+        return placed;
+    }
+
+    private void placeAndUpdate(int[] s, int cell, int bit)
+    {
+        place(s, cell, Integer.numberOfTrailingZeros(bit) + 1);
+        for (int c : cellCages[cell])
+            updateCage(s, c);
+    }
+
+    private void place(int[] s, int cell, int value)
+    {
+        int bit = 1 << (value - 1);
+        s[cell] = value;
+        for (int h : HOUSES_OF_CELL[cell])
+            s[houseOffset + h] |= bit;
+
+        for (int c : cellCages[cell])
+        {
+            s[cageUsedOffset + c] |= bit;
+            s[cageSumOffset + c] -= value;
+            s[cageLeftOffset + c]--;
+        }
+    }
+
+    // Digits still possible in an empty cell given its houses and every cage it belongs to
+    private int cellOptions(int[] s, int cell)
+    {
+        int options = ~houseMask(s, cell);
+        for (int c : cellCages[cell])
+            options &= cageAllowed[c];
+        return options;
+    }
+
+    private int cageUsedMask(int[] s, int cell)
+    {
+        int used = 0;
+        for (int c : cellCages[cell])
+            used |= s[cageUsedOffset + c];
+        return used;
+    }
+
+    private int houseMask(int[] s, int cell)
+    {
+        int[] houses = HOUSES_OF_CELL[cell];
+        return s[houseOffset + houses[0]] | s[houseOffset + houses[1]] | s[houseOffset + houses[2]];
+    }
+
+    // Recomputes which digits can still go in a cage (union of the viable combinations) and which digits every
+    // viable combination needs. A combination is dropped if it reuses a placed digit, or if one of its digits is
+    // blocked by the houses of every empty cage cell.
+    private void updateCage(int[] s, int cage)
+    {
+        int left = s[cageLeftOffset + cage];
+        int sum = s[cageSumOffset + cage];
+        if (left == 0)
+        {
+            cageAllowed[cage] = 0;
+            cageRequired[cage] = 0;
+            return;
+        }
+
+        int placeable = 0;
+        for (int i : cageCells[cage])
+        {
+            if (s[i] == 0)
+                placeable |= ~houseMask(s, i);
+        }
+
+        int blocked = s[cageUsedOffset + cage] | ~placeable;
+        int allowed = 0;
+        int required = FULL_MASK;
+        for (int combination : CageCombinations.get(sum, left))
+        {
+            if ((combination & blocked) == 0)
+            {
+                allowed |= combination;
+                required &= combination;
+            }
+        }
+        cageAllowed[cage] = allowed;
+        cageRequired[cage] = allowed == 0 ? 0 : required;
+    }
+
+    static void addRealCages(int[] cellCage, int[] cageTotals, List<int[]> cells, List<Integer> totals)
+    {
+        int[] sizes = new int[cageTotals.length];
+        for (int i = 0; i < 81; ++i)
+            sizes[cellCage[i]]++;
+
+        int[][] cages = new int[cageTotals.length][];
+        for (int c = 0; c < cages.length; ++c)
+            cages[c] = new int[sizes[c]];
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < 81; ++i)
+        {
+            int c = cellCage[i];
+            cages[c][sizes[c]++] = i;
+        }
+
+        for (int c = 0; c < cages.length; ++c)
+        {
+            cells.add(cages[c]);
+            totals.add(cageTotals[c]);
+        }
+    }
+
+    // Adds one cage per house for the cells left over once every cage lying entirely inside the house is removed
+    static void addInnieCages(int[] cellCage, int[] cageTotals, List<int[]> cells, List<Integer> totals)
+    {
+        int realCount = cageTotals.length;
+        for (int[] house : HOUSES)
+        {
+            // A cage is inside the house if none of its cells are outside it
+            boolean[] touches = new boolean[realCount];
+            int[] inside = new int[realCount];
+            for (int i : house)
+            {
+                touches[cellCage[i]] = true;
+                inside[cellCage[i]]++;
+            }
+
+            int innerTotal = 0;
+            int[] remainder = new int[9];
+            int remainderSize = 0;
+            for (int i : house)
+            {
+                int c = cellCage[i];
+                if (inside[c] == cells.get(c).length)
+                    continue;
+                remainder[remainderSize++] = i;
+            }
+            for (int c = 0; c < realCount; ++c)
+            {
+                if (touches[c] && inside[c] == cells.get(c).length)
+                    innerTotal += cageTotals[c];
+            }
+
+            if (remainderSize > 0 && remainderSize < 9)
+            {
+                cells.add(Arrays.copyOf(remainder, remainderSize));
+                totals.add(45 - innerTotal);
+            }
+        }
+    }
+
+    static int[] cageLayoutOf(Board b)
+    {
+        int[] cellCage = new int[81];
+        for (int i = 0; i < 81; ++i)
+            cellCage[i] = b.getZoneIndex(b.getCell(i % 9, i / 9));
+        return cellCage;
+    }
+
+    static int[] cageTotalsOf(Board b)
+    {
+        int[] totals = new int[b.zones.size()];
+        for (int c = 0; c < totals.length; ++c)
+            totals[c] = b.zones.get(c).getTotal();
+        return totals;
+    }
+
+    static int[] revealedValuesOf(Board b)
+    {
+        int[] givens = new int[81];
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell cell = b.getCell(i % 9, i / 9);
+            if (cell.reveal)
+                givens[i] = cell.value;
+        }
+        return givens;
+    }
+
+    private static int[][] buildHouses()
+    {
+        int[][] houses = new int[27][9];
+        for (int i = 0; i < 9; ++i)
+        {
+            for (int j = 0; j < 9; ++j)
+            {
+                houses[i][j] = (i * 9) + j;
+                houses[9 + i][j] = (j * 9) + i;
+                houses[18 + i][j] = ((((i / 3) * 3) + (j / 3)) * 9) + ((i % 3) * 3) + (j % 3);
+            }
+        }
+        return houses;
+    }
+
+    private static int[][] buildHousesOfCell()
+    {
+        int[][] output = new int[81][];
+        for (int i = 0; i < 81; ++i)
+        {
+            int x = i % 9;
+            int y = i / 9;
+            output[i] = new int[] { y, 9 + x, 18 + ((y / 3) * 3) + (x / 3) };
+        }
+        return output;
+    }
+}
@@ -5,17 +5,45 @@ import java.util.*;
 public class Zone
 {
     public List<Cell> cells;
-    private String id;
-
-    public Zone()
+    // Index of this zone in its board's zone list
+    private int id;
+    // Running sum of the cells' values and how many of them are non-zero, kept up to date by Board.setValue
+    private int total;
+    private int filledCount;
+    // Membership bitset over cell indices (y * 9) + x: cells 0-63 in lowCells, 64-80 in highCells
+    private long lowCells;
+    private long highCells;
+
+    public Zone(int id)
     {
         cells = new ArrayList<Cell>();
-        id = "";
+        this.id = id;
+        total = 0;
+        filledCount = 0;
+        lowCells = 0;
+        highCells = 0;
+    }
+
+    // Copies a zone onto the matching cells of another board
+    public Zone(Zone z, Board b)
+    {
+        cells = new ArrayList<Cell>(z.cells.size());
+        for (Cell c : z.cells)
+        {
+            Cell nativeCell = b.getCell(c);
+            nativeCell.owned = true;
+            nativeCell.parent = (byte)z.id;
+            cells.add(nativeCell);
+            valueChanged(0, nativeCell.value);
+        }
+        id = z.id;
+        lowCells = z.lowCells;
+        highCells = z.highCells;
     }
 
     @Override public String toString()
     {
-        String output = String.format("%s\n", this.id);
+        String output = String.format("%s (%s)\n", this.id, getIdString());
         int sumTotal = 0;
         for (Cell c : this.cells)
         {
@@ -28,30 +56,54 @@ public class Zone
 
     public boolean equals(Zone z)
     {
-        return this.id.equals(z.id);
+        return this.id == z.id;
     }
 
-    public String getId()
+    public int getId()
     {
         return id;
     }
 
+    // Debug form of the id: every child cell's x,y coordinates, e.g. "102030"
+    public String getIdString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Cell c : this.cells)
+            sb.append(c.x).append(c.y);
+        return sb.toString();
+    }
+
     public int getTotal()
     {
-        int output = 0;
+        return total;
+    }
 
-        for (Cell c : this.cells)
-        {
-            output += c.value;
-        }
+    public int getFilledCount()
+    {
+        return filledCount;
+    }
 
-        return output;
+    // True once every cell of the zone has a value
+    public boolean isFull()
+    {
+        return filledCount == cells.size();
     }
 
     public void add(Cell c)
     {
         this.cells.add(c);
-        this.updateId();
+        setMember(c, true);
+        valueChanged(0, c.value);
+    }
+
+    // Called when one of the zone's cells changes value
+    void valueChanged(int oldValue, int newValue)
+    {
+        total += newValue - oldValue;
+        if (oldValue == 0 && newValue != 0)
+            filledCount++;
+        else if (oldValue != 0 && newValue == 0)
+            filledCount--;
     }
 
     public void remove(Cell c)
@@ -62,7 +114,8 @@ public class Zone
             {
                 x.setUnowned();
                 cells.remove(x);
-                updateId();
+                setMember(x, false);
+                valueChanged(x.value, 0);
                 return;
             }
         }
@@ -74,12 +127,19 @@ public class Zone
         if (j == null)
             return false;
 
-        for (Cell c : this.cells)
-        {
-            if (c.x == j.x && c.y == j.y)
-                return true;
-        }
-        return false;
+        int index = (j.y * 9) + j.x;
+        if (index < 64)
+            return (lowCells & (1L << index)) != 0;
+        return (highCells & (1L << (index - 64))) != 0;
+    }
+
+    private void setMember(Cell c, boolean member)
+    {
+        int index = (c.y * 9) + c.x;
+        if (index < 64)
+            lowCells = member ? lowCells | (1L << index) : lowCells & ~(1L << index);
+        else
+            highCells = member ? highCells | (1L << (index - 64)) : highCells & ~(1L << (index - 64));
     }
 
     public boolean containsValue(int val)
@@ -146,17 +206,4 @@ public class Zone
 
         return val.equals(zVal);
     }
-
-    // Sets zone ID string to list of all child cells' x,y coordinates
-    private void updateId()
-    {
-        String name = "";
-        for (Cell c : this.cells)
-        {
-            name += Integer.toString(c.x) + Integer.toString(c.y);
-        }
-        this.id = name;
-    }
-
-
 }
\ No newline at end of file
@@ -0,0 +1,431 @@
+package com.example.killersudoku.UI;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.Zone;
+
+import java.util.*;
+
+// Draws the whole 9x9 board (grid, cage walls and sums, values, notes and cell highlights) in a single view.
+// GameDisplay sets what each cell shows; taps are hit-tested to a cell and passed to the OnCellClickListener.
+// A cell shows its value if it has one, otherwise its notes.
+// Changes only mark cells dirty; the dirty cells are invalidated together once per frame, so a tap that changes
+// many cells (e.g. clearing a digit from every peer's notes) costs one invalidation pass.
+public class BoardView extends View
+{
+    private static final int CELL_VALUE_FONT_COLOR = Color.argb(255, 44, 142, 199);
+    private static final int CELL_NOTE_FONT_COLOR = Color.argb(255, 200, 200, 200);
+    private static final int CAGE_SUM_FONT_COLOR = Color.argb(255, 143, 143, 143);
+    private static final int CAGE_WALL_COLOR = Color.argb(255, 143, 143, 143);
+    private static final int CELL_VALUE_FONT_SIZE = 24;
+    private static final int CAGE_SUM_FONT_SIZE = 12;
+    // In pixels, like the dashed line drawables they replace
+    private static final int DASHED_LINE_MARGIN = 10;
+    private static final int DASH_LENGTH = 7;
+    private static final int BOX_LINE_WIDTH = 2;   // dp
+    private static final int CAGE_LINE_WIDTH = 1;  // dp
+
+    // Widest cage sum, kept clear of the walls of every cell that shows a sum
+    private static final String WIDEST_CAGE_SUM = "45";
+    // Template index bit for cells that show a cage sum, on top of the 4 wall bits
+    private static final int HAS_SUM = 16;
+    // Cage sum and digit labels, so drawing never builds strings
+    private static final String[] SUM_LABELS = new String[46];
+
+    static
+    {
+        for (int i = 0; i < SUM_LABELS.length; ++i)
+            SUM_LABELS[i] = Integer.toString(i);
+    }
+
+    private final byte[] values;
+    // [cell index] = notes as a 9-bit mask where bit 0 is the digit 1
+    private final short[] notes;
+    // [cell index] = background color, or 0 for none
+    private final int[] cellBackground;
+    private final int[] cageSums;
+    // [cell index] = index into wallTemplates: the cell's Board.WALL_* mask plus HAS_SUM
+    private final int[] walls;
+    // Dashed wall path of every wall configuration, relative to the cell's top left, rebuilt when the size changes
+    private final Path[] wallTemplates;
+    // 81-bit set of cells changed since the last frame: word 0 holds cell indices 0-63, word 1 holds 64-80
+    private final long[] dirtyCells;
+    private final Choreographer.FrameCallback flushCallback;
+    private boolean flushScheduled;
+    private final Rect clipBounds;
+
+    private final Paint backgroundPaint;
+    private final Paint gridPaint;
+    private final Paint boxPaint;
+    private final Paint cagePaint;
+    private final Paint valuePaint;
+    private final Paint notePaint;
+    private final Paint sumPaint;
+
+    private OnCellClickListener cellClickListener;
+
+    public interface OnCellClickListener
+    {
+        void onCellClick(int x, int y);
+    }
+
+    public BoardView(Context context)
+    {
+        this(context, null);
+    }
+
+    public BoardView(Context context, AttributeSet attrs)
+    {
+        super(context, attrs);
+
+        this.values = new byte[81];
+        this.notes = new short[81];
+        this.cellBackground = new int[81];
+        this.cageSums = new int[81];
+        this.walls = new int[81];
+        this.wallTemplates = new Path[32];
+        this.dirtyCells = new long[2];
+        this.flushCallback = this::flushDirtyCells;
+        this.clipBounds = new Rect();
+
+        backgroundPaint = new Paint();
+        backgroundPaint.setStyle(Paint.Style.FILL);
+
+        gridPaint = new Paint();
+        gridPaint.setColor(Color.BLACK);
+        gridPaint.setStrokeWidth(1);
+
+        boxPaint = new Paint();
+        boxPaint.setColor(Color.BLACK);
+        boxPaint.setStrokeWidth(dp(BOX_LINE_WIDTH));
+
+        cagePaint = new Paint();
+        cagePaint.setColor(CAGE_WALL_COLOR);
+        cagePaint.setStyle(Paint.Style.STROKE);
+        cagePaint.setStrokeWidth(dp(CAGE_LINE_WIDTH));
+        cagePaint.setPathEffect(new DashPathEffect(new float[] { DASH_LENGTH, DASH_LENGTH }, 0));
+
+        valuePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        valuePaint.setColor(CELL_VALUE_FONT_COLOR);
+        valuePaint.setTextAlign(Paint.Align.CENTER);
+        valuePaint.setTextSize(sp(CELL_VALUE_FONT_SIZE));
+
+        notePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        notePaint.setColor(CELL_NOTE_FONT_COLOR);
+        notePaint.setTextAlign(Paint.Align.CENTER);
+
+        sumPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        sumPaint.setColor(CAGE_SUM_FONT_COLOR);
+        sumPaint.setTextSize(sp(CAGE_SUM_FONT_SIZE));
+    }
+
+    public void setOnCellClickListener(OnCellClickListener listener)
+    {
+        cellClickListener = listener;
+    }
+
+    // Sets what a cell shows: value if it is non-zero, otherwise the note digits in the notes mask
+    public void setCell(int x, int y, int value, int notes)
+    {
+        int i = (y * 9) + x;
+        if (this.values[i] == value && this.notes[i] == notes)
+            return;
+
+        this.values[i] = (byte)value;
+        this.notes[i] = (short)notes;
+        markDirty(i);
+    }
+
+    public int getCellValue(int x, int y)
+    {
+        return values[(y * 9) + x];
+    }
+
+    // The cage sum shown in a cell, or 0 if it shows none
+    public int getCageSum(int x, int y)
+    {
+        return cageSums[(y * 9) + x];
+    }
+
+    public void setCellBackground(int x, int y, int color)
+    {
+        int i = (y * 9) + x;
+        if (cellBackground[i] == color)
+            return;
+
+        cellBackground[i] = color;
+        markDirty(i);
+    }
+
+    // Back to the plain bordered cell
+    public void clearCellBackground(int x, int y)
+    {
+        setCellBackground(x, y, 0);
+    }
+
+    // Takes the cage sums from the board's zones and each cell's walls from the board
+    public void setCages(Board board)
+    {
+        Arrays.fill(cageSums, 0);
+        for (Zone z : board.zones)
+        {
+            Cell topLeftMost = z.getTopLeftMostCell();
+            cageSums[(topLeftMost.y * 9) + topLeftMost.x] = z.getTotal();
+        }
+
+        for (int i = 0; i < 81; ++i)
+            walls[i] = board.getWallMask(i % 9, i / 9) | (cageSums[i] > 0 ? HAS_SUM : 0);
+        markAllDirty();
+    }
+
+    // Clears all text, highlights and cages
+    public void reset()
+    {
+        Arrays.fill(values, (byte)0);
+        Arrays.fill(notes, (short)0);
+        Arrays.fill(cellBackground, 0);
+        Arrays.fill(cageSums, 0);
+        Arrays.fill(walls, 0);
+        markAllDirty();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        // Always square, as large as the width allows
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        int size = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.UNSPECIFIED || height == 0 ? width : Math.min(width, height);
+        setMeasuredDimension(size, size);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh)
+    {
+        super.onSizeChanged(w, h, oldw, oldh);
+        notePaint.setTextSize(cellSize() / 3.5f);
+
+        for (int i = 0; i < wallTemplates.length; ++i)
+            wallTemplates[i] = createWallTemplate(i, cellSize());
+    }
+
+    @Override
+    protected void onDetachedFromWindow()
+    {
+        // The whole view is drawn again once it is attached
+        Choreographer.getInstance().removeFrameCallback(flushCallback);
+        flushScheduled = false;
+        dirtyCells[0] = 0;
+        dirtyCells[1] = 0;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas)
+    {
+        super.onDraw(canvas);
+        float cell = cellSize();
+        canvas.getClipBounds(clipBounds);
+
+        for (int i = 0; i < 81; ++i)
+        {
+            float left = (i % 9) * cell;
+            float top = (i / 9) * cell;
+
+            // Outside the invalidated area
+            if (!clipBounds.intersects((int)left, (int)top, (int)Math.ceil(left + cell), (int)Math.ceil(top + cell)))
+                continue;
+
+            if (cellBackground[i] != 0)
+            {
+                backgroundPaint.setColor(cellBackground[i]);
+                canvas.drawRect(left, top, left + cell, top + cell, backgroundPaint);
+            }
+
+            if (cageSums[i] > 0)
+                canvas.drawText(SUM_LABELS[cageSums[i]], left + dp(1), top + dp(1) - sumPaint.ascent(), sumPaint);
+            if (walls[i] != 0 && wallTemplates[walls[i]] != null)
+            {
+                canvas.save();
+                canvas.translate(left, top);
+                canvas.drawPath(wallTemplates[walls[i]], cagePaint);
+                canvas.restore();
+            }
+
+            if (values[i] > 0)
+            {
+                float baseline = top + (cell / 2) - ((valuePaint.descent() + valuePaint.ascent()) / 2);
+                canvas.drawText(SUM_LABELS[values[i]], left + (cell / 2), baseline, valuePaint);
+            }
+            else if (notes[i] != 0)
+                drawNotes(canvas, notes[i], left, top, cell);
+        }
+
+        // Cell borders, then thicker 3x3 box dividers on top
+        for (int i = 0; i <= 9; ++i)
+        {
+            float offset = i * cell;
+            Paint paint = (i % 3 == 0) ? boxPaint : gridPaint;
+            canvas.drawLine(offset, 0, offset, cell * 9, paint);
+            canvas.drawLine(0, offset, cell * 9, offset, paint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event)
+    {
+        if (event.getAction() == MotionEvent.ACTION_DOWN)
+            return true;
+        if (event.getAction() != MotionEvent.ACTION_UP)
+            return super.onTouchEvent(event);
+
+        float cell = cellSize();
+        int x = (int)(event.getX() / cell);
+        int y = (int)(event.getY() / cell);
+        if (x >= 0 && x < 9 && y >= 0 && y < 9 && cellClickListener != null)
+            cellClickListener.onCellClick(x, y);
+
+        performClick();
+        return true;
+    }
+
+    @Override
+    public boolean performClick()
+    {
+        return super.performClick();
+    }
+
+    private void markDirty(int cell)
+    {
+        dirtyCells[cell >> 6] |= 1L << cell;
+        scheduleFlush();
+    }
+
+    private void markAllDirty()
+    {
+        dirtyCells[0] = -1L;
+        dirtyCells[1] = (1L << (81 - 64)) - 1;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush()
+    {
+        if (flushScheduled)
+            return;
+        flushScheduled = true;
+        Choreographer.getInstance().postFrameCallback(flushCallback);
+    }
+
+    // Invalidates the bounding box of all cells changed since the last frame in one call
+    private void flushDirtyCells(long frameTimeNanos)
+    {
+        flushScheduled = false;
+        int minX = 9, minY = 9, maxX = -1, maxY = -1;
+        for (int word = 0; word < 2; ++word)
+        {
+            long bits = dirtyCells[word];
+            dirtyCells[word] = 0;
+            while (bits != 0)
+            {
+                int i = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                minX = Math.min(minX, i % 9);
+                maxX = Math.max(maxX, i % 9);
+                minY = Math.min(minY, i / 9);
+                maxY = Math.max(maxY, i / 9);
+            }
+        }
+        if (maxX == -1)
+            return;
+
+        // Include the grid lines around the cells, which are drawn centered on the cell edges
+        float cell = cellSize();
+        int pad = (int)Math.ceil(dp(BOX_LINE_WIDTH));
+        invalidate((int)(minX * cell) - pad, (int)(minY * cell) - pad,
+                (int)Math.ceil((maxX + 1) * cell) + pad, (int)Math.ceil((maxY + 1) * cell) + pad);
+    }
+
+    // Builds the dashed wall segments for one wall configuration, inset from the cell edge. A wall runs to the
+    // cell edge where the cage continues past it, so walls of neighboring cells in the same cage join up.
+    private Path createWallTemplate(int template, float cell)
+    {
+        Path path = new Path();
+        float m = DASHED_LINE_MARGIN;
+
+        float startX = (template & Board.WALL_LEFT) != 0 ? m : 0;
+        float endX = (template & Board.WALL_RIGHT) != 0 ? cell - m : cell;
+        float startY = (template & Board.WALL_TOP) != 0 ? m : 0;
+        float endY = (template & Board.WALL_BOTTOM) != 0 ? cell - m : cell;
+
+        // With a sum the top wall starts after it and the left wall below it
+        float topStartX = startX;
+        float leftStartY = startY;
+        if ((template & HAS_SUM) != 0)
+        {
+            topStartX = dp(1) + sumPaint.measureText(WIDEST_CAGE_SUM);
+            leftStartY = dp(1) + sumPaint.descent() - sumPaint.ascent();
+        }
+
+        if ((template & Board.WALL_TOP) != 0)
+            addLine(path, topStartX, m, endX, m);
+        if ((template & Board.WALL_LEFT) != 0)
+            addLine(path, m, leftStartY, m, endY);
+        if ((template & Board.WALL_RIGHT) != 0)
+            addLine(path, cell - m, startY, cell - m, endY);
+        if ((template & Board.WALL_BOTTOM) != 0)
+            addLine(path, startX, cell - m, endX, cell - m);
+
+        return path;
+    }
+
+    private static void addLine(Path path, float x1, float y1, float x2, float y2)
+    {
+        path.moveTo(x1, y1);
+        path.lineTo(x2, y2);
+    }
+
+    // Each note digit has a fixed spot in a 3x3 grid within the cell
+    private void drawNotes(Canvas canvas, int mask, float left, float top, float cell)
+    {
+        float third = cell / 3;
+        float centerOffset = (notePaint.descent() + notePaint.ascent()) / 2;
+
+        for (int digit = 1; digit <= 9; ++digit)
+        {
+            if ((mask & (1 << (digit - 1))) == 0)
+                continue;
+
+            float cx = left + (((digit - 1) % 3) * third) + (third / 2);
+            float cy = top + (((digit - 1) / 3) * third) + (third / 2) - centerOffset;
+            canvas.drawText(SUM_LABELS[digit], cx, cy, notePaint);
+        }
+    }
+
+    private float cellSize()
+    {
+        return getWidth() / 9f;
+    }
+
+    private float dp(int value)
+    {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+    }
+
+    private float sp(int value)
+    {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value, getResources().getDisplayMetrics());
+    }
+}
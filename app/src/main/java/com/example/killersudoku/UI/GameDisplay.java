@@ -1,162 +1,173 @@
 package com.example.killersudoku.UI;
 
-import android.content.res.AssetManager;
 import android.graphics.Color;
-import android.graphics.drawable.Drawable;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.widget.GridLayout;
-import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.constraintlayout.widget.ConstraintLayout;
-import androidx.constraintlayout.widget.ConstraintSet;
 
 import com.example.killersudoku.Models.Board;
 import com.example.killersudoku.Models.BoardTracker;
+import com.example.killersudoku.Models.CageCombinations;
 import com.example.killersudoku.Models.Cell;
-import com.example.killersudoku.Models.SolvedCombination;
+import com.example.killersudoku.Models.DifficultyRater;
+import com.example.killersudoku.Models.GameSnapshot;
+import com.example.killersudoku.Models.PuzzlePrefetcher;
 import com.example.killersudoku.Models.Zone;
 import com.example.killersudoku.R;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class GameDisplay
 {
-    private final int CAGE_SUM_FONT_SIZE = 12;
-
-    private final int CELL_VALUE_FONT_COLOR = Color.argb(255, 44, 142, 199);
-    private final int CELL_NOTE_FONT_COLOR = Color.argb(255, 200, 200, 200);
     private final int CELL_HIGHLIGHTED_COLOR = Color.argb(255, 9, 61, 125);
     private final int SAME_VALUE_CELL_HIGHLIGHT_COLOR = Color.argb(255, 55, 55, 55);
     private final int CELL_INVALID_HIGHLIGHT_COLOR = Color.argb(255, 191, 4, 29);
-    private final int CELL_VALUE_FONT_SIZE = 24;
-    private final int CELL_NOTE_FONT_SIZE = 14;
-    private final int DASHED_LINE_WIDTH = 5;
-    private final int DASHED_LINE_MARGIN = 10;
-
-    private static String sudokuSolutionsFile = "validSudokuGames.txt";
-
-    private static final List<SolvedCombination> knownCombinations = new ArrayList<>(Arrays.asList(
-        new SolvedCombination(3, 2, "12"),
-        new SolvedCombination(4, 2, "13"),
-        new SolvedCombination(16, 2, "79"),
-        new SolvedCombination(17, 2, "89"),
-
-        new SolvedCombination(6, 3, "123"),
-        new SolvedCombination(7, 3, "124"),
-        new SolvedCombination(23, 3, "689"),
-        new SolvedCombination(24, 3, "789"),
-
-        new SolvedCombination(10, 4, "1234"),
-        new SolvedCombination(11, 4, "1235"),
-        new SolvedCombination(29, 4, "5789"),
-        new SolvedCombination(30, 4, "6789"),
-
-        new SolvedCombination(15, 5, "12345"),
-        new SolvedCombination(16, 5, "12346"),
-        new SolvedCombination(34, 5, "46789"),
-        new SolvedCombination(35, 5, "56789")
-    ));
-
-    private List<List<ConstraintLayout>> cellLayouts;
+    private final int SOLVED_COLOR = Color.argb(255, 32, 153, 21);
+
+    // Number of upcoming games generated in the background while the current one is played
+    private static final int PREFETCHED_GAMES = 2;
+
+    private BoardView boardView;
     private AppCompatActivity act;
     private String boardString;
+    // Seed the current game was generated from, which regenerates it through PuzzlePrefetcher.generate()
+    private long puzzleNumber;
+    private DifficultyRater.Rating rating;
     private Board board;
     private Board userBoard;
     // selectedCell is set to the SOLUTION BOARD cell
     private Cell selectedCell;
-    private Drawable cellBorder;
     private boolean noteMode;
-    private Random rand;
+    // Digit whose cells have the same value highlight, or 0 for none
+    private int highlightedValue;
+    // Set while the whole board is painted as solved
+    private boolean solvedShown;
     private BoardTracker boardTracker;
+    private PuzzlePrefetcher prefetcher;
 
     public GameDisplay(AppCompatActivity act)
+    {
+        this(act, null);
+    }
+
+    // Resumes a saved game as it was left, or starts a new game if snapshot is null
+    public GameDisplay(AppCompatActivity act, GameSnapshot snapshot)
     {
         this.act = act;
-        this.rand = new Random();
-        this.boardString = getNewGameString();
-        this.board = new Board(boardString);
-        this.userBoard = new Board("");
+        this.prefetcher = new PuzzlePrefetcher(new SplittableRandom(), PREFETCHED_GAMES);
+        this.noteMode = false;
 
-        // this.board.simplePrint();
+        if (snapshot == null)
+        {
+            // Nothing has been prefetched yet at this point, so the first game is always a miss generated on the UI
+            // thread. Only later games come from the background.
+            PuzzlePrefetcher.Game game = prefetcher.take();
+            this.puzzleNumber = game.seed;
+            this.rating = game.rating;
+            this.boardString = game.solution;
+            this.board = game.board;
+            this.userBoard = game.userBoard;
+            this.boardTracker = new BoardTracker();
 
-        this.cellBorder = act.getDrawable(R.drawable.border);
-        this.noteMode = false;
+            // this.board.simplePrint();
 
-        board.setBoardZones();
-        userBoard.cloneZones(board);
-        initializeBoardGrid();
+            initializeBoardGrid();
+            setUpNewGame();
+        }
+        else
+        {
+            this.puzzleNumber = snapshot.seed;
+            this.boardString = snapshot.solution;
+            this.board = snapshot.createBoard();
+            this.userBoard = snapshot.createUserBoard(board);
+            this.boardTracker = snapshot.history;
+            // Ratings aren't saved, and rating a layout takes well under a millisecond
+            this.rating = new DifficultyRater(board).rate();
 
-        this.boardTracker = new BoardTracker(userBoard);
+            initializeBoardGrid();
+            for (int i = 0; i < 81; ++i)
+                restoreCell(i, snapshot.values[i], snapshot.notes[i], snapshot.valid[i]);
+        }
     }
 
     public void initializeBoardGrid()
     {
-        cellLayouts = new ArrayList<>();
-        for (int i = 0; i < 9; ++i)
-        {
-            cellLayouts.add(new ArrayList<>());
-            for (int j = 0; j < 9; ++j)
-            {
-                GridLayout gridLayout = getGridLayout(act, j, i);
-                ConstraintLayout cl = (ConstraintLayout) LayoutInflater.from(act).inflate(R.layout.board_cell, null);
-
-                // Set cell position within 3x3 block
-                GridLayout.Spec rowSpec = GridLayout.spec(i, 1, 1);
-                GridLayout.Spec columnSpec = GridLayout.spec(j, 1, 1);
-                GridLayout.LayoutParams param = new GridLayout.LayoutParams(rowSpec, columnSpec);
-                // Keeps the column width equal
-                param.width = 0;
-                param.height = 0;
-
-                // Setup constraint layout
-                cl.setLayoutParams(param);
-                cl.setTag(String.format("%s%s", j, i));
-                cl.setOnClickListener(this::onCellClick);
-                cellLayouts.get(i).add(cl);
-                // cl.setOnHoverListener(view -> onCellClick(view));
-
-                // Set cell value
-                TextView t = cl.findViewById(R.id.cellValue);
-                t.setTag(false);
-
-                gridLayout.addView(cl);
-            }
-        }
-
-        setAllCages();
-        loadNotesForSolvedCombinations();
-        markSingleCellZones();
-        markRevealCells();
+        boardView = act.findViewById(R.id.boardView);
+        boardView.setOnCellClickListener(this::handleCellClick);
+        boardView.reset();
+        boardView.setCages(board);
     }
 
     public void resetGame()
     {
-        if (selectedCell != null)
-        {
-            ConstraintLayout cl =  cellLayouts.get(selectedCell.y).get(selectedCell.x);
-            cl.setBackground(cellBorder);
-        }
+        // Swaps in a game generated in the background while the previous one was played
+        startGame(prefetcher.take());
+    }
+
+    // Starts the game with a shared puzzle number, generated on the calling thread
+    public void startPuzzle(long puzzleNumber)
+    {
+        startGame(PuzzlePrefetcher.generate(puzzleNumber));
+    }
+
+    public long getPuzzleNumber()
+    {
+        return puzzleNumber;
+    }
+
+    public DifficultyRater.Rating getRating()
+    {
+        return rating;
+    }
+
+    // Starts a game that has already been generated
+    public void startGame(PuzzlePrefetcher.Game game)
+    {
         selectedCell = null;
         noteMode = false;
-        userBoard = new Board("");
+        highlightedValue = 0;
+        solvedShown = false;
 
-        boardString = getNewGameString();
-        board = new Board(boardString);
+        puzzleNumber = game.seed;
+        rating = game.rating;
+        boardString = game.solution;
+        board = game.board;
+        userBoard = game.userBoard;
 
         // board.simplePrint();
 
-        board.setBoardZones();
-        userBoard.cloneZones(board);
-        resetCellLayouts();
-        setAllCages();
-        loadNotesForSolvedCombinations();
-        markSingleCellZones();
-        markRevealCells();
-        boardTracker = new BoardTracker(userBoard);
+        boardView.reset();
+        boardView.setCages(board);
+        setUpNewGame();
+    }
+
+    // Copies everything needed to resume the current game. The copy is independent, so it can be written out on
+    // another thread while play continues.
+    public GameSnapshot createSnapshot()
+    {
+        byte[] cellZones = new byte[81];
+        boolean[] reveals = new boolean[81];
+        int[] values = new int[81];
+        int[] notes = new int[81];
+        boolean[] valid = new boolean[81];
+
+        for (int y = 0; y < 9; ++y)
+        {
+            for (int x = 0; x < 9; ++x)
+            {
+                int i = (y * 9) + x;
+                Cell c = board.getCell(x, y);
+                Cell userCell = userBoard.getCell(x, y);
+
+                cellZones[i] = (byte)board.getZoneIndex(c);
+                reveals[i] = c.reveal;
+                values[i] = userCell.value;
+                notes[i] = userBoard.getNotes(x, y);
+                valid[i] = userCell.valid;
+            }
+        }
+
+        return new GameSnapshot(puzzleNumber, boardString, cellZones, reveals, values, notes, valid,
+                new BoardTracker(boardTracker));
     }
 
     public void onNumClick(String num)
@@ -164,39 +175,32 @@ public class GameDisplay
         if (selectedCell == null)
             return;
 
-        boardTracker.saveBoardState(userBoard);
-
         Cell userCell = userBoard.getCell(selectedCell);
-        List<CellState> changedCells = new ArrayList<CellState>();
+        if (userCell.valid && userCell.value > 0)
+            return;
+
+        int oldValue = userCell.value;
+        int oldNotes = userBoard.getNotes(userCell.x, userCell.y);
+        boolean oldValid = userCell.valid;
+        boardTracker.beginMove();
 
         if (noteMode)
         {
-            if (userCell.valid && userCell.value > 0)
-            {
-                boardTracker.getLastBoardState();
-                return;
-            }
-            
-            setCellNote(selectedCell, num);
-            userCell.value = 0;
+            int notes = userBoard.toggleNote(userCell.x, userCell.y, Integer.parseInt(num));
+            boardView.setCell(userCell.x, userCell.y, 0, notes);
+            userBoard.setValue(userCell, 0);
+            recordChange(userCell, oldValue, oldNotes, oldValid);
         }
         else
         {
             int newValue = Integer.parseInt(num);
 
-            if (userCell.valid && userCell.value > 0)
-            {
-                boardTracker.getLastBoardState();
-                return;
-            }
-
-            changedCells.add(getStateOfCell(userCell));
-            setCellValue(selectedCell, num);
+            setCellValue(userCell, newValue);
 
             if (userCell.value != 0)
                 highlightSameValueCells(userCell, false);
 
-            userCell.value = newValue;
+            userBoard.setValue(userCell, newValue);
             highlightSameValueCells(userCell, true);
 
             boolean cellValidity = userBoard.isCellValid(userCell);
@@ -204,21 +208,23 @@ public class GameDisplay
 
             if (cellValidity && zoneValidity)
             {
-                //  Clear the number from the notes of all relevant cells
-                changedCells.addAll(clearNumberFromNotes(userCell));
-
                 // Reset cell color to cyan if it was highlighted red before
-                cellLayouts.get(userCell.y).get(userCell.x).setBackgroundColor(CELL_HIGHLIGHTED_COLOR);
+                boardView.setCellBackground(userCell.x, userCell.y, CELL_HIGHLIGHTED_COLOR);
                 userCell.valid = true;
+                recordChange(userCell, oldValue, oldNotes, oldValid);
+
+                //  Clear the number from the notes of all relevant cells
+                clearNumberFromNotes(userCell);
 
                 // Highlight all cells green
-                if (userBoard.isFull() && userBoard.checkSolution())
+                if (userBoard.checkSolution())
                 {
+                    solvedShown = true;
                     for (int i = 0; i < 9; ++i)
                     {
                         for (int j = 0; j < 9; ++j)
                         {
-                            cellLayouts.get(j).get(i).setBackgroundColor(Color.argb(255, 32, 153, 21));
+                            boardView.setCellBackground(i, j, SOLVED_COLOR);
                         }
                     }
                 }
@@ -226,13 +232,24 @@ public class GameDisplay
             // Highlight cell in red
             else
             {
-                ConstraintLayout cl = cellLayouts.get(selectedCell.y).get(selectedCell.x);
-                cl.setBackgroundColor(CELL_INVALID_HIGHLIGHT_COLOR);
+                boardView.setCellBackground(selectedCell.x, selectedCell.y, CELL_INVALID_HIGHLIGHT_COLOR);
                 userCell.valid = false;
+                recordChange(userCell, oldValue, oldNotes, oldValid);
             }
-
-            boardTracker.saveCellChanges(changedCells);
         }
+
+        boardTracker.endMove();
+    }
+
+    // Stops background generation of upcoming games
+    public void shutdown()
+    {
+        prefetcher.shutdown();
+    }
+
+    public PuzzlePrefetcher getPrefetcher()
+    {
+        return prefetcher;
     }
 
     public boolean toggleNoteMode()
@@ -246,23 +263,25 @@ public class GameDisplay
         if (selectedCell == null)
             return;
 
-        boardTracker.saveBoardState(userBoard);
-        List<CellState> changedCells = new ArrayList<CellState>();
-
-        setCellValue(selectedCell, "");
         Cell c = userBoard.getCell(selectedCell);
+        int oldValue = c.value;
+        int oldNotes = userBoard.getNotes(c.x, c.y);
+        boolean oldValid = c.valid;
 
-        changedCells.add(getStateOfCell(c));
-        boardTracker.saveCellChanges(changedCells);
+        setCellValue(c, 0);
 
         if (c.value > 0)
             highlightSameValueCells(c, false);
-        c.value = 0;
+        userBoard.setValue(c, 0);
         if (!c.valid)
         {
-            cellLayouts.get(c.y).get(c.x).setBackgroundColor(CELL_HIGHLIGHTED_COLOR);
+            boardView.setCellBackground(c.x, c.y, CELL_HIGHLIGHTED_COLOR);
             c.valid = true;
         }
+
+        boardTracker.beginMove();
+        recordChange(c, oldValue, oldNotes, oldValid);
+        boardTracker.endMove();
     }
 
     public void onHintClick()
@@ -270,53 +289,51 @@ public class GameDisplay
         if (selectedCell == null)
             return;
 
-        boardTracker.saveBoardState(userBoard);
-        List<CellState> changedCells = new ArrayList<CellState>();
-
         Cell userCell = userBoard.getCell(selectedCell);
-        changedCells.add(getStateOfCell(userCell));
+        int oldValue = userCell.value;
+        int oldNotes = userBoard.getNotes(userCell.x, userCell.y);
+        boolean oldValid = userCell.valid;
+        boardTracker.beginMove();
 
-        setCellValue(selectedCell, selectedCell.value);
+        setCellValue(userCell, selectedCell.value);
 
-        userCell.value = selectedCell.value;
+        userBoard.setValue(userCell, selectedCell.value);
         userCell.valid = true;
-        cellLayouts.get(userCell.y).get(userCell.x).setBackgroundColor(CELL_HIGHLIGHTED_COLOR);
+        boardView.setCellBackground(userCell.x, userCell.y, CELL_HIGHLIGHTED_COLOR);
+        recordChange(userCell, oldValue, oldNotes, oldValid);
 
-        changedCells.addAll(clearNumberFromNotes(selectedCell));
-        boardTracker.saveCellChanges(changedCells);
+        clearNumberFromNotes(selectedCell);
+        boardTracker.endMove();
     }
 
-    public List<Integer> getNumCounts()
+    // [digit - 1] = how many cells hold digit
+    public int[] getNumCounts()
     {
-        List<Integer> numCounts = new ArrayList<>(Arrays.asList(0,0,0,0,0,0,0,0,0));
-
-        for(int y = 0; y < 9; ++y)
-        {
-            for (int x = 0; x < 9; ++x)
-            {
-                int val = userBoard.getCell(x, y).value;
-                if (val > 0)
-                    numCounts.set(val-1, numCounts.get(val-1)+1);
-            }
-        }
-
+        int[] numCounts = new int[9];
+        for (int num = 1; num <= 9; ++num)
+            numCounts[num - 1] = userBoard.quantityOfNumber(num);
         return numCounts;
     }
 
     public void onUndoClick()
     {
-        revertBoard();
-        revertCells();
+        selectHistoryCell(boardTracker.undo(this::restoreCell));
     }
 
-    private void onCellClick(View v)
+    public void onRedoClick()
     {
-        String coord = (String)v.getTag();
+        selectHistoryCell(boardTracker.redo(this::restoreCell));
+    }
 
-        int x = Character.getNumericValue(coord.charAt(0));
-        int y = Character.getNumericValue(coord.charAt(1));
+    // Undoes or redoes moves until the given number of moves is applied
+    public void jumpToMove(int move)
+    {
+        selectHistoryCell(boardTracker.jumpTo(move, this::restoreCell));
+    }
 
-        handleCellClick(x, y);
+    public BoardTracker getBoardTracker()
+    {
+        return boardTracker;
     }
 
     private void handleCellClick(int x, int y)
@@ -326,359 +343,60 @@ public class GameDisplay
         {
             highlightSameValueCells(userBoard.getCell(selectedCell), false);
             if (userBoard.getCell(selectedCell).valid)
-            {
-                ConstraintLayout previous = cellLayouts.get(selectedCell.y).get(selectedCell.x);
-                previous.setBackground(cellBorder);
-            }
+                boardView.clearCellBackground(selectedCell.x, selectedCell.y);
         }
 
         Cell newCell = userBoard.getCell(x, y);
         if (newCell.valid)
         {
             highlightSameValueCells(newCell, true);
-            cellLayouts.get(y).get(x).setBackgroundColor(CELL_HIGHLIGHTED_COLOR);
+            boardView.setCellBackground(x, y, CELL_HIGHLIGHTED_COLOR);
         }
         selectedCell = board.getCell(x, y);
     }
 
-    private static GridLayout getGridLayout(AppCompatActivity act, int x, int y)
+    // Shows a value in a user cell and drops its notes. Does NOT set the model's value field.
+    private void setCellValue(Cell userCell, int value)
     {
-        int id = 0;
-
-        if (x < 3)
-        {
-            if (y < 3)
-                id = R.id.topLeftGrid;
-            else if (y < 6)
-                id = R.id.middleLeftGrid;
-            else
-                id = R.id.bottomLeftGrid;
-        }
-        else if (x < 6)
-        {
-            if (y < 3)
-                id = R.id.topMiddleGrid;
-            else if (y < 6)
-                id = R.id.middleMiddleGrid;
-            else
-                id = R.id.bottomMiddleGrid;
-        }
-        else
-        {
-            if (y < 3)
-                id = R.id.topRightGrid;
-            else if (y < 6)
-                id = R.id.middleRightGrid;
-            else
-                id = R.id.bottomRightGrid;
-        }
-
-        return act.findViewById(id);
+        userBoard.setNotes(userCell.x, userCell.y, 0);
+        boardView.setCell(userCell.x, userCell.y, value, 0);
     }
 
-    private void hideCageWall(ConstraintSet cs, WallSide side)
+    // Replaces the notes of a user cell
+    private void setCellNotes(Cell userCell, int notes)
     {
-        int dashedLineId;
-
-        switch(side)
-        {
-            case BOTTOM:
-                dashedLineId = R.id.bottomLine;
-                break;
-            case TOP:
-                dashedLineId = R.id.topLine;
-                break;
-            case RIGHT:
-                dashedLineId = R.id.rightLine;
-                break;
-            case LEFT:
-                dashedLineId = R.id.leftLine;
-                break;
-            default:
-                return;
-        }
-
-        cs.setVisibility(dashedLineId, ConstraintSet.INVISIBLE);
-    }
-
-    // Resets a cell's cage wall views to all be visible with set margins
-    private void resetCellCageWalls(ConstraintLayout cl)
-    {
-        View dashedLine;
-
-        ConstraintSet cs = new ConstraintSet();
-        cs.clone(cl);
-
-        cs.setMargin(R.id.bottomLine, ConstraintSet.BOTTOM, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.bottomLine, ConstraintSet.START, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.bottomLine, ConstraintSet.END, DASHED_LINE_MARGIN);
-
-        cs.setMargin(R.id.topLine, ConstraintSet.TOP, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.topLine, ConstraintSet.START, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.topLine, ConstraintSet.END, DASHED_LINE_MARGIN);
-
-        cs.setMargin(R.id.rightLine, ConstraintSet.BOTTOM, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.rightLine, ConstraintSet.TOP, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.rightLine, ConstraintSet.END, DASHED_LINE_MARGIN);
-
-        cs.setMargin(R.id.leftLine, ConstraintSet.BOTTOM, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.leftLine, ConstraintSet.START, DASHED_LINE_MARGIN);
-        cs.setMargin(R.id.leftLine, ConstraintSet.TOP, DASHED_LINE_MARGIN);
-
-        cs.applyTo(cl);
-
-
-
-        dashedLine = cl.findViewById(R.id.bottomLine);
-        dashedLine.setVisibility(View.VISIBLE);
-        dashedLine = cl.findViewById(R.id.topLine);
-        dashedLine.setVisibility(View.VISIBLE);
-        dashedLine = cl.findViewById(R.id.rightLine);
-        dashedLine.setVisibility(View.VISIBLE);
-        dashedLine = cl.findViewById(R.id.leftLine);
-        dashedLine.setVisibility(View.VISIBLE);
-    }
-
-    private void setCageSum(ConstraintLayout cl, int value)
-    {
-        TextView sum = cl.findViewById(R.id.cageSum);
-        if (value > 0)
-        {
-            sum.setTextSize(CAGE_SUM_FONT_SIZE);
-            sum.setText(Integer.toString(value));
-        }
-        else
-        {
-            sum.setTextSize(0);
-            sum.setText("");
-        }
-    }
-
-    // Draws cage sums and hides cage walls depending on the board zones
-    private void setAllCages()
-    {
-        for (Zone z : board.zones)
-        {
-            Cell topLeftMost = z.getTopLeftMostCell();
-            ConstraintLayout cl = cellLayouts.get(topLeftMost.y).get(topLeftMost.x);
-            setCageSum(cl, z.getTotal());
-
-            for (Cell c : z.cells)
-            {
-                ConstraintLayout conLay = cellLayouts.get(c.y).get(c.x);
-                resetCellCageWalls(conLay);
-                setCageWalls(z, c);
-            }
-        }
-    }
-
-    // Resets all cell layouts to the default state (no text, white background, etc)
-    private void resetCellLayouts()
-    {
-        for (int i = 0; i < 9; ++i)
-        {
-            for (int j = 0; j < 9; ++j)
-            {
-                ConstraintLayout cl = cellLayouts.get(j).get(i);
-                TextView t = cl.findViewById(R.id.cellValue);
-                t.setText("");
-                t.setTag(false);
-                cl.setBackground(cellBorder);
-                setCageSum(cl, 0);
-                resetCellCageWalls(cl);
-            }
-        }
-    }
-
-    // Hides cage walls for a cell based on its zone
-    private void setCageWalls(Zone z, Cell c)
-    {
-        ConstraintLayout cl = cellLayouts.get(c.y).get(c.x);
-        ConstraintSet cs = new ConstraintSet();
-        cs.clone(cl);
-
-        Cell neighbor = board.getCellLeft(c);
-        if (z.contains(neighbor))
-        {
-            hideCageWall(cs, WallSide.LEFT);
-
-            cs.setMargin(R.id.topLine, ConstraintSet.START, 0);
-            cs.setMargin(R.id.bottomLine, ConstraintSet.START, 0);
-        }
-
-        neighbor = board.getCellAbove(c);
-        if (z.contains(neighbor))
-        {
-            hideCageWall(cs, WallSide.TOP);
-
-            cs.setMargin(R.id.leftLine, ConstraintSet.TOP, 0);
-            cs.setMargin(R.id.rightLine, ConstraintSet.TOP, 0);
-        }
-
-        neighbor = board.getCellRight(c);
-        if (z.contains(neighbor))
-        {
-            hideCageWall(cs, WallSide.RIGHT);
-
-            cs.setMargin(R.id.topLine, ConstraintSet.END, 0);
-            cs.setMargin(R.id.bottomLine, ConstraintSet.END, 0);
-        }
-
-        neighbor = board.getCellBelow(c);
-        if (z.contains(neighbor))
-        {
-            hideCageWall(cs, WallSide.BOTTOM);
-
-            cs.setMargin(R.id.leftLine, ConstraintSet.BOTTOM, 0);
-            cs.setMargin(R.id.rightLine, ConstraintSet.BOTTOM, 0);
-        }
-
-        cs.applyTo(cl);
-    }
-
-    // Sets the text value of the cell, NOT the model's value field
-    private void setCellValue(Cell c, String value)
-    {
-        String newValue = value.equals("0") ? "" : value;
-
-        ConstraintLayout cl = cellLayouts.get(c.y).get(c.x);
-        TextView t = cl.findViewById(R.id.cellValue);
-        t.setText(newValue);
-        t.setTextSize(CELL_VALUE_FONT_SIZE);
-        t.setTextColor(CELL_VALUE_FONT_COLOR);
-        t.setTag(false);
-    }
-
-    private void setCellValue(Cell c, int value)
-    {
-        setCellValue(c, String.valueOf(value));
-    }
-
-    // Passing a value with multiple numbers will just set the note text without doing any removal/sorting logic
-    private void setCellNote(Cell c, String value)
-    {
-        ConstraintLayout cl = cellLayouts.get(c.y).get(c.x);
-        TextView t = cl.findViewById(R.id.cellValue);
-
-        String newNote;
-
-        if ((boolean)t.getTag() && value.length() == 1)
-        {
-            String oldNote = (String)t.getText();
-            newNote = getNoteString(oldNote, value);
-        }
-        else
-            newNote = value;
-
-        t.setText(newNote);
-        t.setTextSize(CELL_NOTE_FONT_SIZE);
-        t.setTextColor(CELL_NOTE_FONT_COLOR);
-        t.setTag(true);
-    }
-
-    // Generates the new note string for a cell for a given number
-    // e.g. getNoteString("1234", "3") returns "124"
-    private static String getNoteString(String oldNote, String number)
-    {
-        int oldNoteSize = oldNote.length();
-
-        if (oldNoteSize == 0)
-            return number;
-        else if (oldNote.contains(number))
-            return oldNote.replace(number, "");
-        else
-        {
-            char num = number.charAt(0);
-            int i;
-            for (i = 0; i < oldNoteSize; ++i)
-            {
-                if (oldNote.charAt(i) > num)
-                    break;
-            }
-            if (i < oldNoteSize)
-            {
-                StringBuilder sb = new StringBuilder(oldNote);
-                sb.insert(i, num);
-                return sb.toString();
-            }
-            return oldNote + number;
-        }
+        userBoard.setNotes(userCell.x, userCell.y, notes);
+        boardView.setCell(userCell.x, userCell.y, 0, notes);
     }
 
     // Removes c.value from the notes of all other relevant cells
-    private List<CellState> clearNumberFromNotes(Cell c)
+    private void clearNumberFromNotes(Cell c)
     {
-        List<CellState> cellStates = new ArrayList<CellState>();
-        CellState cs;
-
         if (c.value == 0)
-            return cellStates;
-
-        for (int i = 0; i < 9; ++i)
-        {
-            if (i != c.x && userBoard.getCell(i, c.y).value == 0)
-            {
-                cs = removeNumFromCellNotes(i, c.y, c.value);
-                if (cs != null)
-                    cellStates.add(cs);
-            }
-
-            if (i != c.y && userBoard.getCell(c.x, i).value == 0)
-            {
-                cs = removeNumFromCellNotes(c.x, i, c.value);
-                if (cs != null)
-                    cellStates.add(cs);
-            }
-        }
-
-        int lowerX = (c.x / 3) * 3;
-        int lowerY = (c.y / 3) * 3;
+            return;
 
-        for (int y = lowerY; y < lowerY + 3; ++y)
-        {
-            for (int x = lowerX; x < lowerX + 3; ++x)
-            {
-                if ((x != c.x || y != c.y) && userBoard.getCell(x, y).value == 0)
-                {
-                    cs = removeNumFromCellNotes(x, y, c.value);
-                    if (cs != null)
-                        cellStates.add(cs);
-                }
-            }
-        }
+        int bit = 1 << (c.value - 1);
+        for (int peer : Board.getPeers(c.x, c.y))
+            removeNoteFromCell(peer % 9, peer / 9, bit);
 
         Zone containingZone = userBoard.getZoneOfCell(c);
         for (Cell cell : containingZone.cells)
         {
-            if (((cell.x != c.x) || (cell.y != c.y)) && cell.value == 0)
-                {
-                    cs = removeNumFromCellNotes(cell.x, cell.y, c.value);
-                    if (cs != null)
-                        cellStates.add(cs);
-                }
+            if ((cell.x != c.x) || (cell.y != c.y))
+                removeNoteFromCell(cell.x, cell.y, bit);
         }
-
-        return cellStates;
     }
 
-    // Removes a single number from a single cell's notes
-    private CellState removeNumFromCellNotes(int x, int y, int value)
+    // Clears one digit's bit from a single empty cell's notes
+    private void removeNoteFromCell(int x, int y, int bit)
     {
-        CellState cs = getStateOfCell(x, y);
-        ConstraintLayout cl = cellLayouts.get(y).get(x);
-        TextView t = cl.findViewById(R.id.cellValue);
-
-        // Cell is not in note mode
-        if (!(boolean)t.getTag())
-            return null;
-
-        String oldNote = (String)t.getText();
-        String newNote = oldNote.replace(String.valueOf(value), "");
-        t.setText(newNote);
+        int oldNotes = userBoard.getNotes(x, y);
+        Cell userCell = userBoard.getCell(x, y);
+        if ((oldNotes & bit) == 0 || userCell.value != 0)
+            return;
 
-        if (newNote != oldNote)
-            return cs;
-        return null;
+        setCellNotes(userCell, oldNotes & ~bit);
+        recordChange(userCell, userCell.value, oldNotes, userCell.valid);
     }
 
     // Fills in notes for zones with one single combination of values
@@ -686,17 +404,14 @@ public class GameDisplay
     {
         for (Zone z : board.zones)
         {
-            int zoneTotal = z.getTotal();
             int zoneSize = z.cells.size();
-            SolvedCombination sc = knownCombinations.stream()
-                    .filter(x -> x.zoneTotal == zoneTotal && x.zoneSize == zoneSize)
-                    .findFirst()
-                    .orElse(null);
-            if (sc != null)
-            {
-                for (Cell c : z.cells)
-                    setCellNote(c, sc.noteString);
-            }
+            // Single cell zones are filled in by markSingleCellZones
+            if (zoneSize < 2 || CageCombinations.count(z.getTotal(), zoneSize) != 1)
+                continue;
+
+            int notes = CageCombinations.possibleDigits(z.getTotal(), zoneSize);
+            for (Cell c : z.cells)
+                setCellNotes(userBoard.getCell(c), notes);
         }
     }
 
@@ -710,8 +425,8 @@ public class GameDisplay
                 Cell solutionCell = z.cells.get(0);
                 Cell userCell = userBoard.getCell(solutionCell);
 
-                setCellValue(userCell, String.valueOf(solutionCell.value));
-                userCell.value = solutionCell.value;
+                setCellValue(userCell, solutionCell.value);
+                userBoard.setValue(userCell, solutionCell.value);
                 userCell.valid = true;
                 clearNumberFromNotes(userCell);
             }
@@ -729,79 +444,65 @@ public class GameDisplay
                 if (c.reveal)
                 {
                     Cell userCell = userBoard.getCell(x, y);
-                    userCell.value = c.value;
+                    userBoard.setValue(userCell, c.value);
                     userCell.valid = true;
-                    setCellValue(c, c.value);
+                    setCellValue(userCell, c.value);
                     clearNumberFromNotes(userCell);
                 }
             }
         }
     }
 
-    private String getNewGameString()
+    // Will not de-highlight the userCell itself. Only visits the cells holding userCell's value.
+    private void highlightSameValueCells(Cell userCell, boolean highlight)
     {
-        try
-        {
-            AssetManager assets = act.getAssets();
-            InputStream is = assets.open(sudokuSolutionsFile);
-
-            int lineNumber = rand.nextInt(600000);
-            long offset = lineNumber * 83;
-
-            is.skip(offset);
-            byte[] b = new byte[81];
-            is.read(b, 0, 81);
-            String output = new String(b, StandardCharsets.UTF_8);
-            is.close();
+        int value = userCell.value;
+        if (value == 0)
+            return;
 
-            return output;
-        }
-        catch (Exception e)
+        for (int i = userBoard.nextCellWithValue(value, 0); i != -1; i = userBoard.nextCellWithValue(value, i + 1))
         {
-            System.out.printf("Exception: %s%n", e);
-            return "";
+            int x = i % 9;
+            int y = i / 9;
+            if (!userBoard.getCell(x, y).valid)
+                continue;
+
+            if (highlight)
+                boardView.setCellBackground(x, y, SAME_VALUE_CELL_HIGHLIGHT_COLOR);
+            else if (x != userCell.x || y != userCell.y)
+                boardView.clearCellBackground(x, y);
         }
+        highlightedValue = highlight ? value : 0;
     }
 
-    // Will not de-highlight the userCell itself
-    private void highlightSameValueCells(Cell userCell, boolean highlight)
+    // Clears the backgrounds of all valid cells except userCell. Outside of a solved board only the same value
+    // highlight and the selected cell can have one, so only those cells are visited.
+    private void dehighlightAllCells(Cell userCell)
     {
-        if (userCell.value == 0)
+        if (solvedShown)
+        {
+            solvedShown = false;
+            for (int i = 0; i < 81; ++i)
+                clearValidCellBackground(i % 9, i / 9, userCell);
             return;
+        }
 
-        for (int y = 0; y < 9; ++y)
+        int value = highlightedValue;
+        if (value != 0)
         {
-            for (int x = 0; x < 9; ++x)
-            {
-                Cell cell = userBoard.getCell(x, y);
-                if (cell.valid && cell.value == userCell.value)
-                {
-                    ConstraintLayout cl = cellLayouts.get(y).get(x);
-
-                    if (highlight)
-                        cl.setBackgroundColor(SAME_VALUE_CELL_HIGHLIGHT_COLOR);
-                    else if (x != userCell.x || y != userCell.y)
-                        cl.setBackground(cellBorder);
-                }
-            }
+            for (int i = userBoard.nextCellWithValue(value, 0); i != -1; i = userBoard.nextCellWithValue(value, i + 1))
+                clearValidCellBackground(i % 9, i / 9, userCell);
+            highlightedValue = 0;
         }
+        if (selectedCell != null)
+            clearValidCellBackground(selectedCell.x, selectedCell.y, userCell);
     }
 
-    private void dehighlightAllCells(Cell userCell)
+    private void clearValidCellBackground(int x, int y, Cell userCell)
     {
-        for (int y = 0; y < 9; ++y)
-        {
-            for (int x = 0; x < 9; ++x)
-            {
-                Cell cell = userBoard.getCell(x, y);
-                // Cell is valid and not the userCell itself
-                if (cell.valid && (x != userCell.x || y != userCell.y))
-                {
-                    ConstraintLayout cl = cellLayouts.get(y).get(x);
-                    cl.setBackground(cellBorder);
-                }
-            }
-        }
+        // Cell is valid and not the userCell itself
+        if (userBoard.getCell(x, y).valid && (x != userCell.x || y != userCell.y))
+            boardView.clearCellBackground(x, y);
     }
 
     // Used to check if the user set values for all cells of a zone but the total doesn't add up to what the cage sum says it should.
@@ -811,95 +512,66 @@ public class GameDisplay
         Zone userZone = userBoard.getZoneOfCell(userCell);
         Zone solutionZone = board.getZoneOfCell(userCell);
 
-        int userTotal = 0;
-        for (Cell c : userZone.cells)
-        {
-            if (c.value == 0)
-                return true;
-            userTotal += c.value;
-        }
-        return userTotal == solutionZone.getTotal();
+        return !userZone.isFull() || userZone.getTotal() == solutionZone.getTotal();
     }
 
-    private enum WallSide
+    // Adds a user cell's change to the current undo move, given its state before the change
+    private void recordChange(Cell userCell, int oldValue, int oldNotes, boolean oldValid)
     {
-        TOP,
-        RIGHT,
-        BOTTOM,
-        LEFT
+        boardTracker.record((userCell.y * 9) + userCell.x, oldValue, userCell.value,
+                oldNotes, userBoard.getNotes(userCell.x, userCell.y), oldValid, userCell.valid);
     }
 
-    // Gets state of user cell
-    private CellState getStateOfCell(Cell c)
+    // Fills in the starting notes and revealed cells of a new game
+    private void setUpNewGame()
     {
-        CellState cs = new CellState(c);
-
-        ConstraintLayout cl = cellLayouts.get(c.y).get(c.x);
-        TextView t = cl.findViewById(R.id.cellValue);
-
-        boolean noteMode = (boolean)t.getTag();
-
-        if (noteMode)
-        {
-            cs.mode = CellState.Mode.NOTE;
-            cs.noteValue = t.getText().toString();
-        }
-        else
-            cs.mode = CellState.Mode.VALUE;
-
-        return cs;
+        loadNotesForSolvedCombinations();
+        markSingleCellZones();
+        markRevealCells();
+        recordBaseState();
     }
 
-    private CellState getStateOfCell(int x, int y)
+    // Starts the history from the freshly set up board, so that reveals and starting notes are never undone
+    private void recordBaseState()
     {
-        Cell userCell = userBoard.getCell(x, y);
-        return getStateOfCell(userCell);
+        boardTracker.clear();
+        for (int y = 0; y < 9; ++y)
+        {
+            for (int x = 0; x < 9; ++x)
+            {
+                Cell userCell = userBoard.getCell(x, y);
+                boardTracker.setBase((y * 9) + x, userCell.value, userBoard.getNotes(x, y), userCell.valid);
+            }
+        }
     }
 
-    // Sets userBoard to its previous state since last action
-    private void revertBoard()
+    // Selects the cell an undo or redo acted on, cell being its index or -1 for none
+    private void selectHistoryCell(int cell)
     {
-        Cell currentCell;
-        Cell previousCell;
-        Board previousBoard = boardTracker.getLastBoardState();
-
-        if (previousBoard == null)
+        if (cell == -1)
             return;
 
-        userBoard = new Board(previousBoard);
-        userBoard.cloneZones(previousBoard);
+        Cell userCell = userBoard.getCell(cell % 9, cell / 9);
+        dehighlightAllCells(userCell);
+        handleCellClick(userCell.x, userCell.y);
     }
 
-    // Sets the cell UIs to their previous state since last action
-    private void revertCells()
+    // Puts a user cell and its UI into a recorded state, used by undo and redo
+    private void restoreCell(int cell, int value, int notes, boolean valid)
     {
-        List<CellState> cellStates = boardTracker.getLastCellChanges();
+        Cell userCell = userBoard.getCell(cell % 9, cell / 9);
 
-        for (CellState cs : cellStates)
-        {
-            // Only used as holder for x,y. Current value/board state doesn't matter
-            Cell userCell = userBoard.getCell(cs.x, cs.y);
-            ConstraintLayout cl = cellLayouts.get(cs.y).get(cs.x);
+        userBoard.setValue(userCell, value);
+        userBoard.setNotes(userCell.x, userCell.y, notes);
+        userCell.valid = valid;
+        boardView.setCell(userCell.x, userCell.y, value, notes);
 
-            if (cs.mode == CellState.Mode.NOTE)
-                setCellNote(userCell, cs.noteValue);
-            else
-                setCellValue(userCell, cs.value);
-
-            // Set highlighting
-            if (!cs.valid)
-                cl.setBackgroundColor(CELL_INVALID_HIGHLIGHT_COLOR);
-            else if (selectedCell.x == cs.x && selectedCell.y == cs.y)
-                cl.setBackgroundColor(CELL_HIGHLIGHTED_COLOR);
-            else
-                cl.setBackground(cellBorder);
-        }
-
-        if (cellStates.size() > 0)
-        {
-            CellState cs = cellStates.get(0);
-            dehighlightAllCells(userBoard.getCell(cs.x, cs.y));
-            handleCellClick(cs.x, cs.y);
-        }
+        // Set highlighting
+        if (!valid)
+            boardView.setCellBackground(userCell.x, userCell.y, CELL_INVALID_HIGHLIGHT_COLOR);
+        else if (selectedCell != null && selectedCell.x == userCell.x && selectedCell.y == userCell.y)
+            boardView.setCellBackground(userCell.x, userCell.y, CELL_HIGHLIGHTED_COLOR);
+        else
+            boardView.clearCellBackground(userCell.x, userCell.y);
     }
 }
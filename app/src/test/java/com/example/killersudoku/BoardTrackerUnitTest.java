@@ -0,0 +1,307 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.BoardTracker;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BoardTrackerUnitTest
+{
+    // Minimal stand-in for the user board: value, notes and validity per cell
+    private static class Cells
+    {
+        final int[] values = new int[81];
+        final int[] notes = new int[81];
+        final boolean[] valid = new boolean[81];
+
+        Cells()
+        {
+            Arrays.fill(valid, true);
+        }
+
+        void set(BoardTracker tracker, int cell, int value, int note, boolean isValid)
+        {
+            tracker.record(cell, values[cell], value, notes[cell], note, valid[cell], isValid);
+            values[cell] = value;
+            notes[cell] = note;
+            valid[cell] = isValid;
+        }
+
+        void restore(int cell, int value, int note, boolean isValid)
+        {
+            values[cell] = value;
+            notes[cell] = note;
+            valid[cell] = isValid;
+        }
+    }
+
+    @Test
+    public void undo_restoresEveryCellOfTheMove()
+    {
+        BoardTracker tracker = new BoardTracker();
+        Cells cells = new Cells();
+
+        tracker.beginMove();
+        cells.set(tracker, 3, 0, 0b10110, true);
+        tracker.endMove();
+
+        tracker.beginMove();
+        cells.set(tracker, 10, 5, 0, false);
+        cells.set(tracker, 3, 0, 0b00110, true);
+        tracker.endMove();
+
+        assertEquals(2, tracker.getMoveCount());
+        assertEquals(10, tracker.undo(cells::restore));
+        assertEquals(0, cells.values[10]);
+        assertTrue(cells.valid[10]);
+        assertEquals(0b10110, cells.notes[3]);
+
+        assertEquals(3, tracker.undo(cells::restore));
+        assertEquals(0, cells.notes[3]);
+        assertFalse(tracker.canUndo());
+        assertEquals(-1, tracker.undo(cells::restore));
+    }
+
+    @Test
+    public void record_ignoresChangesOutsideAMove()
+    {
+        BoardTracker tracker = new BoardTracker();
+        Cells cells = new Cells();
+
+        cells.set(tracker, 0, 4, 0, true);
+        tracker.beginMove();
+        tracker.endMove();
+
+        assertFalse(tracker.canUndo());
+    }
+
+    @Test
+    public void record_dropsOldestMovesWhenFull()
+    {
+        BoardTracker tracker = new BoardTracker(BoardTracker.MIN_CAPACITY);
+        Cells cells = new Cells();
+
+        // Three records per move, so the capacity never splits evenly and whole moves have to be dropped
+        for (int move = 0; move < 1000; ++move)
+        {
+            tracker.beginMove();
+            for (int i = 0; i < 3; ++i)
+                cells.set(tracker, (move + i) % 81, (move % 9) + 1, 0, true);
+            tracker.endMove();
+        }
+
+        assertEquals(BoardTracker.MIN_CAPACITY / 3, tracker.getMoveCount());
+
+        int undone = 0;
+        while (tracker.undo(cells::restore) != -1)
+            undone++;
+        assertEquals(BoardTracker.MIN_CAPACITY / 3, undone);
+    }
+
+    // Folding the move being recorded would drop its start and leave the counts wrong, so it is refused instead
+    @Test
+    public void record_rejectsAMoveLargerThanTheBuffer() throws IOException
+    {
+        BoardTracker tracker = new BoardTracker(BoardTracker.MIN_CAPACITY);
+        Cells cells = new Cells();
+
+        tracker.beginMove();
+        try
+        {
+            for (int i = 0; i <= BoardTracker.MIN_CAPACITY; ++i)
+                cells.set(tracker, i % 81, (i % 9) + 1, i, true);
+            fail("Recorded a move larger than the buffer");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+        tracker.endMove();
+
+        assertEquals(1, tracker.getMoveCount());
+        assertEquals(1, tracker.getCurrentMove());
+        BoardTracker saved = BoardTracker.read(new DataInputStream(new ByteArrayInputStream(toBytes(tracker))));
+        assertEquals(1, saved.getMoveCount());
+        assertEquals(0, saved.undo(cells::restore));
+    }
+
+    @Test
+    public void redo_reappliesUndoneMoves()
+    {
+        BoardTracker tracker = new BoardTracker();
+        Cells cells = new Cells();
+
+        tracker.beginMove();
+        cells.set(tracker, 20, 7, 0, true);
+        cells.set(tracker, 21, 0, 0b1, true);
+        tracker.endMove();
+
+        tracker.undo(cells::restore);
+        assertTrue(tracker.canRedo());
+        assertEquals(20, tracker.redo(cells::restore));
+        assertEquals(7, cells.values[20]);
+        assertEquals(0b1, cells.notes[21]);
+        assertFalse(tracker.canRedo());
+        assertEquals(-1, tracker.redo(cells::restore));
+    }
+
+    @Test
+    public void beginMove_afterUndoDiscardsRedo()
+    {
+        BoardTracker tracker = new BoardTracker();
+        Cells cells = new Cells();
+
+        for (int move = 0; move < 3; ++move)
+        {
+            tracker.beginMove();
+            cells.set(tracker, move, move + 1, 0, true);
+            tracker.endMove();
+        }
+
+        tracker.undo(cells::restore);
+        tracker.undo(cells::restore);
+        tracker.beginMove();
+        cells.set(tracker, 40, 9, 0, true);
+        tracker.endMove();
+
+        assertEquals(2, tracker.getMoveCount());
+        assertEquals(2, tracker.getCurrentMove());
+        assertFalse(tracker.canRedo());
+        assertEquals(0, cells.values[1]);
+    }
+
+    // Jumping anywhere and replaying from the base must both give the same cells as playing the moves directly
+    @Test
+    public void jumpToAndReplay_matchDirectPlay()
+    {
+        BoardTracker tracker = new BoardTracker(BoardTracker.MIN_CAPACITY);
+        Cells cells = new Cells();
+        Random rand = new Random(3);
+        for (int cell = 0; cell < 81; ++cell)
+            tracker.setBase(cell, 0, 0, true);
+
+        int moves = 200;
+        int[][] valuesAfter = new int[moves + 1][];
+        int[][] notesAfter = new int[moves + 1][];
+        valuesAfter[0] = cells.values.clone();
+        notesAfter[0] = cells.notes.clone();
+
+        for (int move = 1; move <= moves; ++move)
+        {
+            tracker.beginMove();
+            for (int i = rand.nextInt(4); i >= 0; --i)
+                cells.set(tracker, rand.nextInt(81), rand.nextInt(10), rand.nextInt(0x200), rand.nextBoolean());
+            tracker.endMove();
+            valuesAfter[move] = cells.values.clone();
+            notesAfter[move] = cells.notes.clone();
+        }
+
+        // Older moves were folded into the base to stay within capacity
+        int first = moves - tracker.getMoveCount();
+        assertTrue(first > 0);
+
+        for (int n = 0; n < 50; ++n)
+        {
+            int target = rand.nextInt(tracker.getMoveCount() + 1);
+            tracker.jumpTo(target, cells::restore);
+            assertArrayEquals(valuesAfter[first + target], cells.values);
+            assertArrayEquals(notesAfter[first + target], cells.notes);
+
+            Cells replayed = new Cells();
+            tracker.replay(replayed::restore);
+            assertArrayEquals(valuesAfter[first + target], replayed.values);
+            assertArrayEquals(notesAfter[first + target], replayed.notes);
+        }
+    }
+
+    @Test
+    public void read_rejectsCorruptRecords() throws IOException
+    {
+        BoardTracker tracker = new BoardTracker();
+        Cells cells = new Cells();
+        for (int move = 0; move < 3; ++move)
+        {
+            tracker.beginMove();
+            cells.set(tracker, move, move + 1, 0, true);
+            cells.set(tracker, move + 9, 0, 0b11, true);
+            tracker.endMove();
+        }
+        tracker.undo(cells::restore);
+        byte[] bytes = toBytes(tracker);
+        assertEquals(2, BoardTracker.read(new DataInputStream(new ByteArrayInputStream(bytes))).getCurrentMove());
+
+        // Records follow 5 header ints and 81 base ints. Each is a big-endian long with the cell in the low 7 bits
+        // of its last byte and the move start at bit 3 of its fourth byte.
+        int records = (5 + 81) * 4;
+
+        byte[] badCell = bytes.clone();
+        badCell[records + 8 + 7] = (byte)((badCell[records + 8 + 7] & 0x80) | 81);
+        assertRejected(badCell);
+
+        byte[] lostMoveStart = bytes.clone();
+        lostMoveStart[records + (2 * 8) + 3] &= ~(1 << 3);
+        assertRejected(lostMoveStart);
+
+        byte[] extraMoveStart = bytes.clone();
+        extraMoveStart[records + 8 + 3] |= 1 << 3;
+        assertRejected(extraMoveStart);
+
+        byte[] badValue = bytes.clone();
+        badValue[(5 * 4) + 3] = 12;
+        assertRejected(badValue);
+    }
+
+    @Test
+    public void benchmark_replay()
+    {
+        BoardTracker tracker = new BoardTracker();
+        Cells cells = new Cells();
+        Random rand = new Random(4);
+
+        // A long game: every tap clears a handful of peer notes
+        for (int move = 0; move < 500; ++move)
+        {
+            tracker.beginMove();
+            for (int i = 0; i < 6; ++i)
+                cells.set(tracker, rand.nextInt(81), rand.nextInt(10), rand.nextInt(0x200), true);
+            tracker.endMove();
+        }
+
+        Cells replayed = new Cells();
+        int runs = 2000;
+        for (int i = 0; i < runs; ++i)
+            tracker.replay(replayed::restore);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; ++i)
+            tracker.replay(replayed::restore);
+        long elapsed = System.nanoTime() - start;
+
+        assertArrayEquals(cells.values, replayed.values);
+        System.out.printf("BoardTracker.replay of %s moves: %s ns/op%n", tracker.getMoveCount(), elapsed / runs);
+    }
+
+    private static byte[] toBytes(BoardTracker tracker) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tracker.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(byte[] bytes)
+    {
+        try
+        {
+            BoardTracker.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+            fail("Accepted a corrupt history");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+}
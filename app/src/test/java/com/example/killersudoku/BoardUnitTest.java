@@ -0,0 +1,294 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.Zone;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BoardUnitTest
+{
+    public static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    @Test
+    public void checkSolution_acceptsSolvedGrid()
+    {
+        Board b = new Board(SOLUTION);
+        assertTrue(b.isFull());
+        assertTrue(b.checkSolution());
+        for (int num = 1; num <= 9; ++num)
+            assertEquals(9, b.quantityOfNumber(num));
+    }
+
+    @Test
+    public void checkSolution_rejectsSwappedCells()
+    {
+        Board b = new Board(SOLUTION);
+        b.setValue(b.getCell(0, 0), 3);
+        b.setValue(b.getCell(1, 0), 5);
+        assertFalse(b.checkSolution());
+        assertFalse(b.isCellValid(b.getCell(0, 0)));
+        assertTrue(b.isCellValid(b.getCell(8, 8)));
+    }
+
+    @Test
+    public void emptyBoard_tracksValues()
+    {
+        Board b = new Board("");
+        assertFalse(b.isFull());
+        b.setValue(b.getCell(4, 4), 7);
+        assertEquals(7, b.getCell(4, 4).value);
+        assertEquals(1, b.quantityOfNumber(7));
+        b.setValue(b.getCell(4, 4), 0);
+        assertEquals(0, b.quantityOfNumber(7));
+    }
+
+    @Test
+    public void setValue_tracksConflictsAndCageSums()
+    {
+        Board b = new Board("");
+        b.cloneZones(zonedBoard());
+        Cell first = b.getCell(0, 0);
+        Cell second = b.getCell(5, 0);
+
+        b.setValue(first, 4);
+        b.setValue(second, 4);
+        assertEquals(1, b.getConflictCount());
+        assertFalse(b.isCellValid(first));
+
+        b.setValue(second, 6);
+        assertEquals(0, b.getConflictCount());
+        assertTrue(b.isCellValid(first));
+
+        Zone z = b.getZoneOfCell(first);
+        assertEquals(4, z.getTotal());
+        assertEquals(1, z.getFilledCount());
+        b.setValue(first, 0);
+        assertEquals(0, z.getTotal());
+        assertEquals(0, z.getFilledCount());
+    }
+
+    @Test
+    public void setBoardZones_coversEveryCell()
+    {
+        Board b = new Board(SOLUTION);
+        b.setBoardZones();
+
+        int cells = 0;
+        for (Zone z : b.zones)
+            cells += z.cells.size();
+        assertEquals(81, cells);
+        assertEquals(405, b.getZoneTotal());
+    }
+
+    @Test
+    public void growZones_makesConnectedCagesOfDistinctDigits()
+    {
+        SplittableRandom rand = new SplittableRandom(12);
+        for (int n = 0; n < 500; ++n)
+        {
+            Board b = new Board(SOLUTION);
+            b.growZones(rand);
+
+            int cells = 0;
+            for (Zone z : b.zones)
+            {
+                assertTrue(z.cells.size() >= 1 && z.cells.size() <= 5);
+                int digits = 0;
+                for (Cell c : z.cells)
+                {
+                    assertEquals(0, digits & (1 << c.value));
+                    digits |= 1 << c.value;
+                    assertSame(z, b.getZoneOfCell(c));
+                }
+                assertTrue(isConnected(b, z));
+                cells += z.cells.size();
+            }
+            assertEquals(81, cells);
+        }
+    }
+
+    private static boolean isConnected(Board b, Zone z)
+    {
+        Set<Cell> reached = new HashSet<>();
+        Deque<Cell> open = new ArrayDeque<>();
+        open.add(z.cells.get(0));
+        while (!open.isEmpty())
+        {
+            Cell c = open.poll();
+            if (!reached.add(c))
+                continue;
+            for (Cell n : new Cell[] { b.getCellAbove(c), b.getCellRight(c), b.getCellBelow(c), b.getCellLeft(c) })
+            {
+                if (n != null && b.inSameZone(c, n))
+                    open.add(n);
+            }
+        }
+        return reached.size() == z.cells.size();
+    }
+
+    @Test
+    public void setBoardZones_isReproducibleFromSeed()
+    {
+        Board first = new Board(SOLUTION);
+        Board second = new Board(SOLUTION);
+        first.setBoardZones(new SplittableRandom(11));
+        second.setBoardZones(new SplittableRandom(11));
+
+        assertEquals(first.zones.size(), second.zones.size());
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell a = first.getCell(i % 9, i / 9);
+            Cell b = second.getCell(i % 9, i / 9);
+            assertEquals(first.getZoneIndex(a), second.getZoneIndex(b));
+            assertEquals(a.reveal, b.reveal);
+        }
+    }
+
+    @Test
+    public void getWallMask_separatesZones()
+    {
+        Board b = zonedBoard();
+
+        for (int y = 0; y < 9; ++y)
+        {
+            for (int x = 0; x < 9; ++x)
+            {
+                Cell c = b.getCell(x, y);
+                int mask = b.getWallMask(x, y);
+
+                assertEquals(!b.inSameZone(c, b.getCellAbove(c)), (mask & Board.WALL_TOP) != 0);
+                assertEquals(x == 8 || !b.inSameZone(c, b.getCellRight(c)), (mask & Board.WALL_RIGHT) != 0);
+                assertEquals(y == 8 || !b.inSameZone(c, b.getCellBelow(c)), (mask & Board.WALL_BOTTOM) != 0);
+                assertEquals(x == 0 || !b.inSameZone(c, b.getCellLeft(c)), (mask & Board.WALL_LEFT) != 0);
+
+                // Walled in on every side only for single cell zones
+                assertEquals(b.getZoneOfCell(c).cells.size() == 1, mask == 0xF);
+            }
+        }
+    }
+
+    @Test
+    public void nextCellWithValue_walksDigitPositions()
+    {
+        Board b = new Board(SOLUTION);
+        for (int digit = 1; digit <= 9; ++digit)
+        {
+            int found = 0;
+            int last = -1;
+            for (int i = b.nextCellWithValue(digit, 0); i != -1; i = b.nextCellWithValue(digit, i + 1))
+            {
+                assertTrue(i > last);
+                assertEquals(digit, SOLUTION.charAt(i) - '0');
+                last = i;
+                found++;
+            }
+            assertEquals(9, found);
+        }
+
+        // Cell 80 is in the upper word, cell 0 in the lower one
+        Board copy = new Board(b);
+        b.setValue(8, 8, 0);
+        b.setValue(0, 0, 0);
+        assertEquals(8, b.quantityOfNumber(9));
+        assertEquals(8, b.quantityOfNumber(5));
+        assertEquals(-1, b.nextCellWithValue(9, 73));
+        assertEquals(14, b.nextCellWithValue(5, 0));
+        assertEquals(80, copy.nextCellWithValue(9, 73));
+        assertEquals(0, copy.nextCellWithValue(5, 0));
+    }
+
+    @Test
+    public void notes_areMasksCopiedWithTheBoard()
+    {
+        Board b = new Board("");
+        assertEquals(0b10, b.toggleNote(3, 4, 2));
+        assertEquals(0b100010, b.toggleNote(3, 4, 6));
+        assertEquals(0b100000, b.toggleNote(3, 4, 2));
+
+        Board copy = new Board(b);
+        b.setNotes(3, 4, 0);
+        assertEquals(0, b.getNotes(3, 4));
+        assertEquals(0b100000, copy.getNotes(3, 4));
+    }
+
+    @Test
+    public void getPeers_coversRowColumnAndBox()
+    {
+        for (int i = 0; i < 81; ++i)
+        {
+            int x = i % 9;
+            int y = i / 9;
+            Set<Integer> peers = new HashSet<>();
+            for (int peer : Board.getPeers(x, y))
+            {
+                int px = peer % 9;
+                int py = peer / 9;
+                assertNotEquals(i, peer);
+                assertTrue(px == x || py == y || ((px / 3 == x / 3) && (py / 3 == y / 3)));
+                peers.add(peer);
+            }
+            assertEquals(20, peers.size());
+        }
+    }
+
+    private static Board zonedBoard()
+    {
+        Board b = new Board(SOLUTION);
+        b.setBoardZones();
+        return b;
+    }
+
+    // Prints timings rather than asserting them, so slow CI machines don't fail the build
+    @Test
+    public void benchmark_checkSolutionAndSetBoardZones()
+    {
+        Board b = new Board(SOLUTION);
+        int iterations = 200000;
+        boolean result = true;
+
+        for (int i = 0; i < iterations; ++i)
+            result &= b.checkSolution();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+            result &= b.checkSolution();
+        long checkNanos = (System.nanoTime() - start) / iterations;
+        assertTrue(result);
+
+        int zoneIterations = 2000;
+        for (int i = 0; i < zoneIterations; ++i)
+            new Board(SOLUTION).setBoardZones();
+        start = System.nanoTime();
+        for (int i = 0; i < zoneIterations; ++i)
+            new Board(SOLUTION).setBoardZones();
+        long zoneNanos = (System.nanoTime() - start) / zoneIterations;
+
+        System.out.printf("checkSolution: %d ns/op, setBoardZones: %d ns/op%n", checkNanos, zoneNanos);
+    }
+
+    // growZones must reset everything from the previous layout, so regrowing one board gives the same layout as a
+    // fresh board for the same seed (timings are in the JMH module's BoardBenchmark.growZones)
+    @Test
+    public void growZones_regrownBoardMatchesFreshBoard()
+    {
+        Board reused = new Board(SOLUTION);
+        for (long seed = 0; seed < 200; ++seed)
+        {
+            reused.growZones(new SplittableRandom(seed));
+            Board fresh = new Board(SOLUTION);
+            fresh.growZones(new SplittableRandom(seed));
+
+            assertEquals(fresh.zones.size(), reused.zones.size());
+            for (int i = 0; i < 81; ++i)
+            {
+                Cell c = fresh.getCell(i % 9, i / 9);
+                assertEquals(fresh.getZoneIndex(c), reused.getZoneIndex(reused.getCell(i % 9, i / 9)));
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.DifficultyRater;
+import com.example.killersudoku.Models.GridGenerator;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DifficultyRaterUnitTest
+{
+    @Test
+    public void rate_fullyRevealedNeedsNoTechniques()
+    {
+        Board b = new Board(BoardUnitTest.SOLUTION);
+        b.setBoardZones();
+        for (int i = 0; i < 81; ++i)
+            b.getCell(i % 9, i / 9).reveal = true;
+
+        DifficultyRater.Rating rating = new DifficultyRater(b).rate();
+        assertTrue(rating.solved);
+        assertEquals(0, rating.score);
+        assertEquals(-1, rating.getHardestTechnique());
+    }
+
+    @Test
+    public void rate_scoreMatchesHistogram()
+    {
+        for (int n = 0; n < 100; ++n)
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            b.setBoardZones();
+            DifficultyRater rater = new DifficultyRater(b);
+            DifficultyRater.Rating rating = rater.rate();
+
+            int score = rating.solved ? 0 : DifficultyRater.UNSOLVED_PENALTY;
+            for (int t = 0; t < DifficultyRater.TECHNIQUE_COUNT; ++t)
+                score += rating.histogram[t] * DifficultyRater.getTechniqueWeight(t);
+            assertEquals(score, rating.score);
+            assertTrue(rating.histogram[DifficultyRater.NAKED_SINGLE] + rating.histogram[DifficultyRater.HIDDEN_SINGLE] > 0);
+
+            // Rating again reuses the working arrays and must give the same answer
+            assertEquals(rating.toString(), rater.rate().toString());
+        }
+    }
+
+    // Placements only ever come from sound eliminations, so every value placed must be the solution's, whether or
+    // not the techniques finish the grid
+    @Test
+    public void rate_neverContradictsTheSolution()
+    {
+        int solved = 0;
+        for (int n = 0; n < 300; ++n)
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            b.setBoardZones();
+            DifficultyRater.Rating rating = new DifficultyRater(b).rate();
+            assertAgreesWithSolution(rating);
+            if (rating.solved)
+            {
+                solved++;
+                for (int i = 0; i < 81; ++i)
+                    assertNotEquals(0, rating.values[i]);
+            }
+
+            // Removing a reveal leaves two solutions, which no sequence of sound steps can complete
+            for (int i = 0; i < 81; ++i)
+            {
+                Cell c = b.getCell(i % 9, i / 9);
+                if (c.reveal)
+                {
+                    c.reveal = false;
+                    DifficultyRater.Rating ambiguous = new DifficultyRater(b).rate();
+                    assertFalse(ambiguous.solved);
+                    assertAgreesWithSolution(ambiguous);
+                    c.reveal = true;
+                    break;
+                }
+            }
+        }
+        System.out.printf("Solved logically: %s of 300%n", solved);
+        assertTrue(solved > 0);
+    }
+
+    private static void assertAgreesWithSolution(DifficultyRater.Rating rating)
+    {
+        for (int i = 0; i < 81; ++i)
+        {
+            if (rating.values[i] != 0)
+                assertEquals(BoardUnitTest.SOLUTION.charAt(i) - '0', rating.values[i]);
+        }
+    }
+
+    // Prints timings rather than asserting them, so slow CI machines don't fail the build
+    @Test
+    public void benchmark_rate10kPuzzles()
+    {
+        // Every timed puzzle is a distinct layout rated once, so nothing is left in the caches from an earlier
+        // rating of the same puzzle. The warm-up uses its own layouts.
+        int puzzles = 10000;
+        int warmups = 1000;
+        SplittableRandom rand = new SplittableRandom(5);
+        GridGenerator generator = new GridGenerator(rand);
+        DifficultyRater[] raters = new DifficultyRater[warmups + puzzles];
+        for (int i = 0; i < raters.length; ++i)
+        {
+            Board b = new Board(generator.generate());
+            b.setBoardZones(rand);
+            raters[i] = new DifficultyRater(b);
+        }
+
+        for (int i = 0; i < warmups; ++i)
+            raters[i].rate();
+
+        int[] histogram = new int[DifficultyRater.TECHNIQUE_COUNT];
+        int solved = 0;
+        long totalScore = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < puzzles; ++i)
+        {
+            DifficultyRater.Rating rating = raters[warmups + i].rate();
+            totalScore += rating.score;
+            solved += rating.solved ? 1 : 0;
+            for (int t = 0; t < histogram.length; ++t)
+                histogram[t] += rating.histogram[t];
+        }
+        long nanos = (System.nanoTime() - start) / puzzles;
+
+        System.out.printf("DifficultyRater.rate: %d ns/op over %d puzzles, %d solved, average score %d, steps %s%n",
+                nanos, puzzles, solved, totalScore / puzzles, Arrays.toString(histogram));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.killersudoku;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.PuzzlePrefetcher;
+import com.example.killersudoku.UI.BoardView;
+import com.example.killersudoku.UI.GameDisplay;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+// Starts games on a display bound to the activity's board view. resetGame() is timed the way the New game button
+// runs it, after the background generation has caught up, so the timings cover taking a prefetched game, loading
+// it into the display and one measure, layout and draw of the board, not puzzle generation.
+@RunWith(RobolectricTestRunner.class)
+public class GameDisplayTimingTest
+{
+    private static final int BOARD_SIZE = 1080;
+
+    @Test
+    public void startGame_showsRevealsAndCageSums()
+    {
+        MainActivity activity = Robolectric.buildActivity(MainActivity.class).setup().get();
+        GameDisplay display = new GameDisplay(activity);
+        BoardView boardView = activity.findViewById(R.id.boardView);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(BOARD_SIZE, BOARD_SIZE, Bitmap.Config.ARGB_8888));
+
+        try
+        {
+            for (long seed = 1; seed <= 5; ++seed)
+            {
+                PuzzlePrefetcher.Game game = PuzzlePrefetcher.generate(seed);
+                display.startGame(game);
+                draw(boardView, canvas);
+                assertShows(boardView, game);
+            }
+            assertEquals(BOARD_SIZE, boardView.getWidth());
+        }
+        finally
+        {
+            display.shutdown();
+        }
+    }
+
+    @Test
+    public void benchmark_resetGame() throws InterruptedException
+    {
+        MainActivity activity = Robolectric.buildActivity(MainActivity.class).setup().get();
+        GameDisplay display = new GameDisplay(activity);
+        PuzzlePrefetcher prefetcher = display.getPrefetcher();
+        BoardView boardView = activity.findViewById(R.id.boardView);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(BOARD_SIZE, BOARD_SIZE, Bitmap.Config.ARGB_8888));
+
+        try
+        {
+            int runs = 50;
+            for (int i = 0; i < runs; ++i)
+            {
+                awaitPrefetched(prefetcher);
+                display.resetGame();
+                draw(boardView, canvas);
+            }
+
+            int missesBefore = prefetcher.getMisses();
+            long resetNanos = 0;
+            long drawNanos = 0;
+            for (int i = 0; i < runs; ++i)
+            {
+                awaitPrefetched(prefetcher);
+                long start = System.nanoTime();
+                display.resetGame();
+                long reset = System.nanoTime();
+                draw(boardView, canvas);
+                resetNanos += reset - start;
+                drawNanos += System.nanoTime() - reset;
+            }
+
+            System.out.printf("resetGame: %s ns/op, measure+layout+draw: %s ns/op%n", resetNanos / runs, drawNanos / runs);
+            // Every timed game came from the background, so no generation was timed
+            assertEquals(missesBefore, prefetcher.getMisses());
+        }
+        finally
+        {
+            display.shutdown();
+        }
+    }
+
+    // Waits until the background generation has a game ready
+    private static void awaitPrefetched(PuzzlePrefetcher prefetcher) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (prefetcher.getReadyCount() == 0)
+        {
+            assertTrue("No game was prefetched in time", System.nanoTime() - deadline < 0);
+            Thread.sleep(1);
+        }
+    }
+
+    // Every cell shows the user board's starting value, and each cage shows its sum exactly once
+    private static void assertShows(BoardView boardView, PuzzlePrefetcher.Game game)
+    {
+        int sums = 0;
+        int sumTotal = 0;
+        for (int i = 0; i < 81; ++i)
+        {
+            int x = i % 9;
+            int y = i / 9;
+            Cell c = game.board.getCell(x, y);
+            assertEquals(game.userBoard.getCell(x, y).value, boardView.getCellValue(x, y));
+            if (c.reveal)
+                assertEquals(c.value, boardView.getCellValue(x, y));
+
+            if (boardView.getCageSum(x, y) > 0)
+            {
+                sums++;
+                sumTotal += boardView.getCageSum(x, y);
+            }
+        }
+
+        assertEquals(game.board.zones.size(), sums);
+        assertEquals(405, sumTotal);
+    }
+
+    private static void draw(BoardView boardView, Canvas canvas)
+    {
+        int spec = View.MeasureSpec.makeMeasureSpec(BOARD_SIZE, View.MeasureSpec.EXACTLY);
+        boardView.measure(spec, spec);
+        boardView.layout(0, 0, BOARD_SIZE, BOARD_SIZE);
+        boardView.draw(canvas);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.GameLibrary;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class GameLibraryUnitTest
+{
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws IOException
+    {
+        new GameLibrary(ByteBuffer.wrap(new byte[64]));
+    }
+
+    @Test
+    public void encode_roundTripsRevealsAndZones() throws IOException
+    {
+        Board b = new Board(BoardUnitTest.SOLUTION);
+        b.setBoardZones();
+        b.getCell(0, 0).reveal = true;
+        b.getCell(8, 8).reveal = true;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameLibrary.writeHeader(new DataOutputStream(bytes), 1);
+        byte[] record = new byte[GameLibrary.RECORD_SIZE];
+        GameLibrary.encode(b, 1234, record, 0);
+        bytes.write(record);
+
+        GameLibrary library = new GameLibrary(ByteBuffer.wrap(bytes.toByteArray()));
+        Board copy = library.getBoard(0);
+        assertEquals(1234, library.getScore(0));
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell c = b.getCell(i % 9, i / 9);
+            Cell copied = copy.getCell(i % 9, i / 9);
+            assertEquals(c.value, copied.value);
+            assertEquals(c.reveal, copied.reveal);
+            assertEquals(b.getZoneIndex(c), copy.getZoneIndex(copied));
+        }
+
+        for (int index : new int[] { -1, 1 })
+        {
+            try
+            {
+                library.getScore(index);
+                fail(Integer.toString(index));
+            }
+            catch (IndexOutOfBoundsException e)
+            {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.BoardTracker;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.GameSnapshot;
+import com.example.killersudoku.Models.GridGenerator;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GameSnapshotUnitTest
+{
+    // A generated game with a few user moves, captured the way GameDisplay.createSnapshot() does
+    private static GameSnapshot playedGame(Random rand)
+    {
+        String solution = new GridGenerator(new SplittableRandom(rand.nextLong())).generate();
+        Board board = new Board(solution);
+        board.setBoardZones();
+
+        byte[] cellZones = new byte[81];
+        boolean[] reveals = new boolean[81];
+        int[] values = new int[81];
+        int[] notes = new int[81];
+        boolean[] valid = new boolean[81];
+        BoardTracker history = new BoardTracker();
+
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell c = board.getCell(i % 9, i / 9);
+            cellZones[i] = (byte)board.getZoneIndex(c);
+            reveals[i] = c.reveal;
+            values[i] = c.reveal ? c.value : 0;
+            valid[i] = true;
+            history.setBase(i, values[i], 0, true);
+        }
+
+        for (int move = 0; move < 30; ++move)
+        {
+            int i = rand.nextInt(81);
+            int value = rand.nextInt(10);
+            int note = value == 0 ? rand.nextInt(0x200) : 0;
+            boolean isValid = rand.nextBoolean();
+
+            history.beginMove();
+            history.record(i, values[i], value, notes[i], note, valid[i], isValid);
+            history.endMove();
+            values[i] = value;
+            notes[i] = note;
+            valid[i] = isValid;
+        }
+        history.undo((cell, value, note, isValid) -> {
+            values[cell] = value;
+            notes[cell] = note;
+            valid[cell] = isValid;
+        });
+
+        return new GameSnapshot(rand.nextLong(), solution, cellZones, reveals, values, notes, valid, history);
+    }
+
+    private static byte[] toBytes(GameSnapshot snapshot) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void writeRead_roundTrips() throws IOException
+    {
+        GameSnapshot original = playedGame(new Random(1));
+        GameSnapshot copy = GameSnapshot.read(new ByteArrayInputStream(toBytes(original)));
+
+        assertEquals(original.seed, copy.seed);
+        assertEquals(original.solution, copy.solution);
+        assertArrayEquals(original.cellZones, copy.cellZones);
+        assertArrayEquals(original.values, copy.values);
+        assertArrayEquals(original.notes, copy.notes);
+        assertTrue(Arrays.equals(original.reveals, copy.reveals));
+        assertTrue(Arrays.equals(original.valid, copy.valid));
+        assertEquals(original.history.getMoveCount(), copy.history.getMoveCount());
+        assertEquals(original.history.getCurrentMove(), copy.history.getCurrentMove());
+
+        // Replaying the restored history must land on the saved cells
+        int[] replayed = new int[81];
+        copy.history.replay((cell, value, note, isValid) -> replayed[cell] = value);
+        assertArrayEquals(original.values, replayed);
+        assertTrue(copy.history.canRedo());
+    }
+
+    @Test
+    public void createBoards_matchSavedLayoutAndValues() throws IOException
+    {
+        GameSnapshot snapshot = GameSnapshot.read(new ByteArrayInputStream(toBytes(playedGame(new Random(2)))));
+        Board board = snapshot.createBoard();
+        Board userBoard = snapshot.createUserBoard(board);
+
+        assertTrue(board.checkSolution());
+        int cageTotal = 0;
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell c = board.getCell(i % 9, i / 9);
+            Cell userCell = userBoard.getCell(i % 9, i / 9);
+
+            assertEquals(snapshot.cellZones[i], board.getZoneIndex(c));
+            assertEquals(snapshot.cellZones[i], userBoard.getZoneIndex(userCell));
+            assertEquals(snapshot.reveals[i], c.reveal);
+            assertEquals(snapshot.values[i], userCell.value);
+            assertEquals(snapshot.notes[i], userBoard.getNotes(i % 9, i / 9));
+            assertEquals(snapshot.valid[i], userCell.valid);
+            cageTotal += c.value;
+        }
+        assertEquals(cageTotal, board.getZoneTotal());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException
+    {
+        GameSnapshot.read(new ByteArrayInputStream(new byte[64]));
+    }
+
+    // Moving the highest zone up by one leaves an empty zone, which restoring the board can't draw
+    @Test(expected = IOException.class)
+    public void read_rejectsZoneIndexGaps() throws IOException
+    {
+        GameSnapshot game = playedGame(new Random(9));
+        byte[] cellZones = game.cellZones.clone();
+        byte highest = 0;
+        for (byte zone : cellZones)
+            highest = (byte)Math.max(highest, zone);
+        for (int i = 0; i < 81; ++i)
+        {
+            if (cellZones[i] == highest)
+                cellZones[i]++;
+        }
+
+        GameSnapshot gap = new GameSnapshot(game.seed, game.solution, cellZones, game.reveals, game.values,
+                game.notes, game.valid, game.history);
+        GameSnapshot.read(new ByteArrayInputStream(toBytes(gap)));
+    }
+
+    // Resuming (read plus rebuilding both boards) should beat generating a new game by a wide margin
+    @Test
+    public void benchmark_resumeVersusGenerate() throws IOException
+    {
+        byte[] saved = toBytes(playedGame(new Random(3)));
+        GridGenerator generator = new GridGenerator(new SplittableRandom(4));
+        int runs = 200;
+
+        for (int i = 0; i < runs; ++i)
+            resume(saved);
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; ++i)
+            resume(saved);
+        long resumeNanos = (System.nanoTime() - start) / runs;
+
+        for (int i = 0; i < runs / 4; ++i)
+            new Board(generator.generate()).setBoardZones();
+        start = System.nanoTime();
+        for (int i = 0; i < runs; ++i)
+            new Board(generator.generate()).setBoardZones();
+        long generateNanos = (System.nanoTime() - start) / runs;
+
+        System.out.printf("Snapshot: %s bytes, resume: %s ns/op, generate: %s ns/op%n", saved.length, resumeNanos, generateNanos);
+        assertTrue(resumeNanos < generateNanos);
+    }
+
+    private static Board resume(byte[] saved) throws IOException
+    {
+        GameSnapshot snapshot = GameSnapshot.read(new ByteArrayInputStream(saved));
+        Board board = snapshot.createBoard();
+        return snapshot.createUserBoard(board);
+    }
+}
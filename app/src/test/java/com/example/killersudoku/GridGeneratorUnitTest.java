@@ -0,0 +1,74 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.GridGenerator;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GridGeneratorUnitTest
+{
+    @Test
+    public void generate_producesValidGrids()
+    {
+        GridGenerator generator = new GridGenerator(new SplittableRandom(1));
+        for (int i = 0; i < 1000; ++i)
+        {
+            String solution = generator.generate();
+            assertEquals(81, solution.length());
+            assertTrue(new Board(solution).checkSolution());
+        }
+    }
+
+    // Every digit should be equally likely in every cell. Checks a chi-squared statistic per cell against a
+    // bound far above what a uniform generator produces (the 99.9th percentile for 8 degrees of freedom is 26.1).
+    @Test
+    public void generate_isUniformPerCell()
+    {
+        GridGenerator generator = new GridGenerator(new SplittableRandom(2));
+        int grids = 18000;
+        int[][] counts = new int[81][10];
+
+        for (int n = 0; n < grids; ++n)
+        {
+            String solution = generator.generate();
+            for (int i = 0; i < 81; ++i)
+                counts[i][solution.charAt(i) - '0']++;
+        }
+
+        double expected = grids / 9.0;
+        double worst = 0;
+        for (int i = 0; i < 81; ++i)
+        {
+            double chiSquared = 0;
+            for (int digit = 1; digit <= 9; ++digit)
+            {
+                double difference = counts[i][digit] - expected;
+                chiSquared += (difference * difference) / expected;
+            }
+            worst = Math.max(worst, chiSquared);
+        }
+
+        System.out.printf("Worst per-cell chi-squared over %d grids: %.2f%n", grids, worst);
+        assertTrue(worst < 40);
+    }
+
+    @Test
+    public void benchmark_throughput()
+    {
+        GridGenerator generator = new GridGenerator();
+        int grids = 50000;
+
+        for (int i = 0; i < grids; ++i)
+            generator.generate();
+        long start = System.nanoTime();
+        for (int i = 0; i < grids; ++i)
+            generator.generate();
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf("GridGenerator: %d ns/grid, %d grids/second%n", nanos / grids, (grids * 1000000000L) / nanos);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.ParallelSolver;
+import com.example.killersudoku.Models.Solver;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class ParallelSolverUnitTest
+{
+    @Test
+    public void countSolutions_matchesSequentialSolver()
+    {
+        ParallelSolver parallel = new ParallelSolver(2);
+        try
+        {
+            SplittableRandom rand = new SplittableRandom(7);
+            for (int n = 0; n < 30; ++n)
+            {
+                Board b = new Board(BoardUnitTest.SOLUTION);
+                b.setBoardZones(rand);
+                assertTrue(parallel.countSolutions(b, 2).isUnique());
+
+                // Without its reveals the layout usually has several solutions
+                int[] values = new int[81];
+                for (int i = 0; i < 81; ++i)
+                    values[i] = b.getCell(i % 9, i / 9).value;
+                Solver hidden = new Solver(cageLayoutOf(b), cageTotalsOf(b, values), new int[81]);
+                for (int limit : new int[] { 2, 20 })
+                {
+                    int expected = hidden.countSolutions(limit);
+                    assertEquals(expected, parallel.countSolutions(hidden, limit, 0).solutions);
+                }
+            }
+        }
+        finally
+        {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void countSolutions_stopsAtDeadline()
+    {
+        ParallelSolver parallel = new ParallelSolver(2);
+        try
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            SplittableRandom rand = new SplittableRandom(3);
+            b.setBoardZones(rand);
+            int[] values = new int[81];
+            for (int i = 0; i < 81; ++i)
+                values[i] = b.getCell(i % 9, i / 9).value;
+            int[] cellCage = mergeCages(cageLayoutOf(b), values, 6, rand);
+            Solver layout = new Solver(cellCage, cageTotalsOf(cellCage, values), new int[81]);
+
+            Solver.SolutionCount count = parallel.countSolutions(layout, 2, 1);
+            assertTrue(count.exhausted);
+            assertFalse(count.isUnique());
+        }
+        finally
+        {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void benchmark_hardUniquenessChecks()
+    {
+        List<Solver> layouts = hardLayouts(4);
+
+        long sequentialNodes = 0;
+        long start = System.nanoTime();
+        for (Solver s : layouts)
+            sequentialNodes += s.countSolutions(2, Long.MAX_VALUE, 0).nodes;
+        long sequentialNanos = (System.nanoTime() - start) / layouts.size();
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ParallelSolver parallel = new ParallelSolver(threads);
+        try
+        {
+            long parallelNodes = 0;
+            start = System.nanoTime();
+            for (Solver s : layouts)
+                parallelNodes += parallel.countSolutions(s, 2, 0).nodes;
+            long parallelNanos = (System.nanoTime() - start) / layouts.size();
+
+            System.out.printf("Hard uniqueness check: sequential %d us/op (%d nodes), %d threads %d us/op (%d nodes)%n",
+                    sequentialNanos / 1000, sequentialNodes / layouts.size(), threads, parallelNanos / 1000,
+                    parallelNodes / layouts.size());
+        }
+        finally
+        {
+            parallel.shutdown();
+        }
+    }
+
+    // Layouts with no reveals whose cages have been merged up to 6 cells, keeping those that take the sequential
+    // solver at least 10k nodes to decide. Always the same layouts, so timings are comparable between runs.
+    private static List<Solver> hardLayouts(int count)
+    {
+        List<Solver> layouts = new ArrayList<>();
+        SplittableRandom rand = new SplittableRandom(2024);
+        while (layouts.size() < count)
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            b.setBoardZones(rand);
+            int[] values = new int[81];
+            for (int i = 0; i < 81; ++i)
+                values[i] = b.getCell(i % 9, i / 9).value;
+
+            int[] cellCage = mergeCages(cageLayoutOf(b), values, 6, rand);
+            Solver solver = new Solver(cellCage, cageTotalsOf(cellCage, values), new int[81]);
+            Solver.SolutionCount trial = solver.countSolutions(2, 100000, 0);
+            if (!trial.exhausted && trial.nodes >= 10000)
+                layouts.add(solver);
+        }
+        return layouts;
+    }
+
+    // Repeatedly joins neighbouring cages whose digits don't overlap and whose combined size is at most maxSize,
+    // then numbers the cages from 0 again
+    private static int[] mergeCages(int[] cellCage, int[] values, int maxSize, SplittableRandom rand)
+    {
+        int[] cages = cellCage.clone();
+        for (int attempt = 0; attempt < 2000; ++attempt)
+        {
+            int a = rand.nextInt(81);
+            int b = rand.nextBoolean() ? a + 1 : a + 9;
+            if ((b == a + 1 && a % 9 == 8) || b >= 81 || cages[a] == cages[b])
+                continue;
+
+            int digitsA = 0;
+            int digitsB = 0;
+            int size = 0;
+            for (int i = 0; i < 81; ++i)
+            {
+                if (cages[i] == cages[a])
+                    digitsA |= 1 << values[i];
+                else if (cages[i] == cages[b])
+                    digitsB |= 1 << values[i];
+                else
+                    continue;
+                size++;
+            }
+            if ((digitsA & digitsB) != 0 || size > maxSize)
+                continue;
+
+            int merged = cages[b];
+            for (int i = 0; i < 81; ++i)
+            {
+                if (cages[i] == merged)
+                    cages[i] = cages[a];
+            }
+        }
+
+        int[] renumber = new int[81];
+        Arrays.fill(renumber, -1);
+        int next = 0;
+        for (int i = 0; i < 81; ++i)
+        {
+            if (renumber[cages[i]] == -1)
+                renumber[cages[i]] = next++;
+            cages[i] = renumber[cages[i]];
+        }
+        return cages;
+    }
+
+    private static int[] cageLayoutOf(Board b)
+    {
+        int[] cellCage = new int[81];
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell c = b.getCell(i % 9, i / 9);
+            cellCage[i] = b.getZoneIndex(c);
+        }
+        return cellCage;
+    }
+
+    private static int[] cageTotalsOf(Board b, int[] values)
+    {
+        return cageTotalsOf(cageLayoutOf(b), values);
+    }
+
+    private static int[] cageTotalsOf(int[] cellCage, int[] values)
+    {
+        int cages = 0;
+        for (int c : cellCage)
+            cages = Math.max(cages, c + 1);
+        int[] totals = new int[cages];
+        for (int i = 0; i < 81; ++i)
+            totals[cellCage[i]] += values[i];
+        return totals;
+    }
+}
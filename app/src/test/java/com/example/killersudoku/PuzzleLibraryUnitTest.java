@@ -0,0 +1,121 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.GridGenerator;
+import com.example.killersudoku.Models.PuzzleLibrary;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PuzzleLibraryUnitTest
+{
+    private static File libraryFile(List<String> solutions) throws IOException
+    {
+        File text = File.createTempFile("solutions", ".txt");
+        File library = File.createTempFile("solutions", ".bin");
+        text.deleteOnExit();
+        library.deleteOnExit();
+        Files.write(text.toPath(), solutions);
+
+        assertEquals(solutions.size(), PuzzleLibrary.convert(text, library));
+        return library;
+    }
+
+    private static byte[] libraryBytes(List<String> solutions) throws IOException
+    {
+        return Files.readAllBytes(libraryFile(solutions).toPath());
+    }
+
+    @Test
+    public void convert_roundTripsEveryGrid() throws IOException
+    {
+        GridGenerator generator = new GridGenerator(new SplittableRandom(11));
+        List<String> solutions = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i)
+            solutions.add(generator.generate());
+
+        File library = libraryFile(solutions);
+        assertEquals(PuzzleLibrary.HEADER_SIZE + (1000L * PuzzleLibrary.RECORD_SIZE), library.length());
+
+        try (FileChannel channel = new RandomAccessFile(library, "r").getChannel())
+        {
+            PuzzleLibrary mapped = new PuzzleLibrary(channel, 0, channel.size());
+            assertEquals(1000, mapped.size());
+            for (int i = 999; i >= 0; --i)
+                assertEquals(solutions.get(i), mapped.getSolution(i));
+        }
+    }
+
+    @Test
+    public void encode_rejectsGridsThatAreNotSolved()
+    {
+        String[] invalid = {
+            BoardUnitTest.SOLUTION.substring(1),
+            BoardUnitTest.SOLUTION.replaceFirst(".$", "0"),
+            // Swapping two digits of the last row keeps every row whole but breaks two columns
+            BoardUnitTest.SOLUTION.substring(0, 72) + BoardUnitTest.SOLUTION.charAt(73)
+                    + BoardUnitTest.SOLUTION.charAt(72) + BoardUnitTest.SOLUTION.substring(74),
+        };
+        for (String grid : invalid)
+        {
+            try
+            {
+                PuzzleLibrary.encode(grid);
+                fail(grid);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+        assertEquals(BoardUnitTest.SOLUTION, PuzzleLibrary.decode(PuzzleLibrary.encode(BoardUnitTest.SOLUTION)));
+    }
+
+    @Test
+    public void open_rejectsBadHeaders() throws IOException
+    {
+        byte[] bytes = libraryBytes(Arrays.asList(BoardUnitTest.SOLUTION, BoardUnitTest.SOLUTION));
+        assertNotNull(new PuzzleLibrary(ByteBuffer.wrap(bytes)));
+
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 1;
+        assertRejected(badMagic);
+
+        byte[] badVersion = bytes.clone();
+        badVersion[7] = 99;
+        assertRejected(badVersion);
+
+        byte[] badRecordSize = bytes.clone();
+        badRecordSize[15] = 16;
+        assertRejected(badRecordSize);
+
+        assertRejected(Arrays.copyOf(bytes, PuzzleLibrary.HEADER_SIZE - 1));
+    }
+
+    @Test
+    public void open_rejectsTruncatedFiles() throws IOException
+    {
+        byte[] bytes = libraryBytes(Arrays.asList(BoardUnitTest.SOLUTION, BoardUnitTest.SOLUTION));
+        assertRejected(Arrays.copyOf(bytes, bytes.length - 1));
+        assertRejected(Arrays.copyOf(bytes, PuzzleLibrary.HEADER_SIZE));
+    }
+
+    private static void assertRejected(byte[] bytes)
+    {
+        try
+        {
+            new PuzzleLibrary(ByteBuffer.wrap(bytes));
+            fail("Accepted a bad library");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+}
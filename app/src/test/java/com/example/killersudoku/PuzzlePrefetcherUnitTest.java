@@ -0,0 +1,103 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.PuzzlePrefetcher;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class PuzzlePrefetcherUnitTest
+{
+    private static String describe(Board b)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 81; ++i)
+        {
+            Cell c = b.getCell(i % 9, i / 9);
+            sb.append(c.value).append(b.getZoneIndex(c)).append(c.reveal ? '*' : ' ');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void generate_sameSeedGivesSameGame()
+    {
+        for (long seed = 0; seed < 20; ++seed)
+        {
+            PuzzlePrefetcher.Game first = PuzzlePrefetcher.generate(seed);
+            PuzzlePrefetcher.Game second = PuzzlePrefetcher.generate(seed);
+
+            assertEquals(seed, first.seed);
+            assertEquals(first.solution, second.solution);
+            assertEquals(describe(first.board), describe(second.board));
+            assertEquals(first.rating.toString(), second.rating.toString());
+        }
+        assertNotEquals(PuzzlePrefetcher.generate(1).solution, PuzzlePrefetcher.generate(2).solution);
+    }
+
+    @Test
+    public void take_countsMissesHitsAndLatency() throws InterruptedException
+    {
+        // Holds the background thread until the first take has missed
+        CountDownLatch gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            try
+            {
+                gate.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        PuzzlePrefetcher prefetcher = new PuzzlePrefetcher(new SplittableRandom(3), 1, executor);
+        try
+        {
+            assertNotNull(prefetcher.take());
+            assertEquals(1, prefetcher.getMisses());
+            assertEquals(0, prefetcher.getHits());
+            assertTrue(prefetcher.getLastGenerationNanos() > 0);
+
+            gate.countDown();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (prefetcher.getReadyCount() == 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(5);
+
+            assertNotNull(prefetcher.take());
+            assertEquals(1, prefetcher.getMisses());
+            assertEquals(1, prefetcher.getHits());
+            assertTrue(prefetcher.getAverageGenerationNanos() > 0);
+        }
+        finally
+        {
+            prefetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void take_servesReproducibleGames()
+    {
+        PuzzlePrefetcher prefetcher = new PuzzlePrefetcher(new SplittableRandom(7), 2);
+        try
+        {
+            for (int i = 0; i < 5; ++i)
+            {
+                PuzzlePrefetcher.Game game = prefetcher.take();
+                assertEquals(describe(game.board), describe(PuzzlePrefetcher.generate(game.seed).board));
+            }
+        }
+        finally
+        {
+            prefetcher.shutdown();
+        }
+    }
+}
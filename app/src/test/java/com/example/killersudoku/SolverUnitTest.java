@@ -0,0 +1,199 @@
+package com.example.killersudoku;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.Cell;
+import com.example.killersudoku.Models.Solver;
+import com.example.killersudoku.Models.Zone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SolverUnitTest
+{
+    @Test
+    public void solve_satisfiesGridAndCages()
+    {
+        for (int n = 0; n < 50; ++n)
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            b.setBoardZones();
+
+            int[] solution = new Solver(b).solve();
+            assertNotNull(solution);
+
+            Board solved = new Board("");
+            for (int i = 0; i < 81; ++i)
+                solved.setValue(i % 9, i / 9, solution[i]);
+            assertTrue(solved.checkSolution());
+
+            for (Zone z : b.zones)
+            {
+                int total = 0;
+                for (Cell c : z.cells)
+                    total += solution[(c.y * 9) + c.x];
+                assertEquals(z.getTotal(), total);
+            }
+        }
+    }
+
+    @Test
+    public void solve_rejectsImpossibleCages()
+    {
+        Board b = new Board(BoardUnitTest.SOLUTION);
+        b.setBoardZones();
+
+        int[] cellCage = new int[81];
+        int[] totals = new int[b.zones.size()];
+        for (int c = 0; c < totals.length; ++c)
+        {
+            for (Cell cell : b.zones.get(c).cells)
+                cellCage[(cell.y * 9) + cell.x] = c;
+            totals[c] = b.zones.get(c).getTotal();
+        }
+        totals[0] += 1;
+
+        assertNull(new Solver(cellCage, totals, new int[81]).solve());
+    }
+
+    @Test
+    public void setBoardZones_revealsUntilUnique()
+    {
+        for (int n = 0; n < 200; ++n)
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            b.setBoardZones();
+
+            Solver solver = new Solver(b);
+            assertEquals(1, solver.countSolutions(2));
+            assertArrayEquals(solutionOf(b), solver.solve());
+
+            // Every remaining reveal is needed
+            for (int i = 0; i < 81; ++i)
+            {
+                Cell c = b.getCell(i % 9, i / 9);
+                if (!c.reveal)
+                    continue;
+                solver.setGiven(i, 0);
+                assertEquals(2, solver.countSolutions(2));
+                solver.setGiven(i, c.value);
+            }
+        }
+    }
+
+    @Test
+    public void countSolutions_stopsAtLimitAndCountsNodes()
+    {
+        Board b = ambiguousBoard();
+
+        Solver.SolutionCount two = Solver.countSolutions(b, 2);
+        assertEquals(2, two.solutions);
+        assertFalse(two.isUnique());
+        assertTrue(two.isComplete());
+        assertTrue(two.nodes > 0);
+        assertTrue(two.backtracks < two.nodes);
+
+        Solver.SolutionCount more = Solver.countSolutions(b, 50);
+        assertTrue(more.solutions >= 2 && more.solutions <= 50);
+        assertTrue(more.isComplete());
+        assertTrue(more.nodes >= two.nodes);
+    }
+
+    @Test
+    public void countSolutions_honoursNodeBudget()
+    {
+        Board b = ambiguousBoard();
+
+        Solver.SolutionCount count = Solver.countSolutions(b, 1000, 1, 0);
+        assertTrue(count.exhausted);
+        assertEquals(1, count.nodes);
+        assertFalse(count.isUnique());
+        assertFalse(count.isComplete());
+
+        // A generous budget finishes like an unbounded search
+        Board unique = new Board(BoardUnitTest.SOLUTION);
+        unique.setBoardZones();
+        Solver.SolutionCount bounded = Solver.countSolutions(unique, 2, 1000000, 1000000000L);
+        assertFalse(bounded.exhausted);
+        assertTrue(bounded.isUnique());
+        assertEquals(Solver.countSolutions(unique, 2).nodes, bounded.nodes);
+    }
+
+    @Test
+    public void benchmark_uniquenessCheck()
+    {
+        int layouts = 2000;
+        Board[] boards = new Board[layouts];
+        long start = System.nanoTime();
+        for (int i = 0; i < layouts; ++i)
+        {
+            boards[i] = new Board(BoardUnitTest.SOLUTION);
+            boards[i].setBoardZones();
+        }
+        long generateNanos = (System.nanoTime() - start) / layouts;
+
+        long nodes = 0;
+        long backtracks = 0;
+        start = System.nanoTime();
+        for (Board b : boards)
+        {
+            Solver.SolutionCount count = Solver.countSolutions(b, 2);
+            assertTrue(count.isUnique());
+            nodes += count.nodes;
+            backtracks += count.backtracks;
+        }
+        long verifyNanos = (System.nanoTime() - start) / layouts;
+
+        System.out.printf("setBoardZones with reveals: %d ns/op, uniqueness proof: %d ns/op (%.1f nodes, %.1f backtracks)%n",
+                generateNanos, verifyNanos, nodes / (double)layouts, backtracks / (double)layouts);
+    }
+
+    @Test
+    public void benchmark_solve()
+    {
+        int layouts = 500;
+        Solver[] solvers = new Solver[layouts];
+        for (int i = 0; i < layouts; ++i)
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            b.setBoardZones();
+            solvers[i] = new Solver(b);
+        }
+
+        for (Solver s : solvers)
+            assertNotNull(s.solve());
+        long start = System.nanoTime();
+        for (Solver s : solvers)
+            s.solve();
+        long nanos = (System.nanoTime() - start) / layouts;
+
+        System.out.printf("Solver.solve: %d ns/op%n", nanos);
+    }
+
+    // A layout with its reveals hidden, so it has more than one solution
+    private static Board ambiguousBoard()
+    {
+        while (true)
+        {
+            Board b = new Board(BoardUnitTest.SOLUTION);
+            b.setBoardZones();
+            boolean revealed = false;
+            for (int i = 0; i < 81; ++i)
+            {
+                Cell c = b.getCell(i % 9, i / 9);
+                revealed |= c.reveal;
+                c.reveal = false;
+            }
+            if (revealed)
+                return b;
+        }
+    }
+
+    private static int[] solutionOf(Board b)
+    {
+        int[] values = new int[81];
+        for (int i = 0; i < 81; ++i)
+            values[i] = b.getCell(i % 9, i / 9).value;
+        return values;
+    }
+}
@@ -0,0 +1,49 @@
+// JMH benchmarks and offline tools for the Models package, which has no Android dependencies and runs on a plain JVM.
+// Run with ./gradlew :benchmarks:jmh, results are written to build/results/jmh/results.json
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            // Compiles the app's model sources directly, so benchmarks always measure the current code
+            srcDir("../app/src/main/java")
+            include("com/example/killersudoku/Models/**")
+            // Offline tools that use the models but don't belong in the app
+            include("com/example/killersudoku/tools/**")
+        }
+    }
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
+// Builds a GameLibrary offline on every core, e.g.
+// ./gradlew :benchmarks:buildGameLibrary -Psolutions=validSudokuGames.txt -Plibrary=games.bin
+tasks.register<JavaExec>("buildGameLibrary") {
+    group = "application"
+    description = "Builds a puzzle library with zones, reveals and difficulty from a file of solutions"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.killersudoku.tools.GameLibraryBuilder")
+    args = listOf(
+        project.findProperty("solutions")?.toString() ?: "validSudokuGames.txt",
+        project.findProperty("library")?.toString() ?: "games.bin"
+    )
+}
@@ -0,0 +1,113 @@
+package com.example.killersudoku.benchmarks;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.GridGenerator;
+import com.example.killersudoku.Models.Solver;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Board construction, zone generation and validity checks. Layout generation is random, so each benchmark works
+// over a fixed set of solution grids from a seeded generator, and every layout is drawn from a seeded source too.
+// Runs are therefore repeatable.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardBenchmark
+{
+    private static final int GRIDS = 64;
+
+    private String[] solutions;
+    private Board[] solvedBoards;
+    private Board[] zonedBoards;
+    private int next;
+    private SplittableRandom rand;
+
+    @Setup
+    public void setUp()
+    {
+        GridGenerator generator = new GridGenerator(new SplittableRandom(1));
+        rand = new SplittableRandom(2);
+        solutions = new String[GRIDS];
+        solvedBoards = new Board[GRIDS];
+        zonedBoards = new Board[GRIDS];
+        for (int i = 0; i < GRIDS; ++i)
+        {
+            solutions[i] = generator.generate();
+            solvedBoards[i] = new Board(solutions[i]);
+            zonedBoards[i] = new Board(solutions[i]);
+            zonedBoards[i].setBoardZones(rand);
+        }
+    }
+
+    private int nextGrid()
+    {
+        next = (next + 1) % GRIDS;
+        return next;
+    }
+
+    @Benchmark
+    public Board newBoard()
+    {
+        return new Board(solutions[nextGrid()]);
+    }
+
+    // Includes constructing the board, since zones can only be set once per board
+    @Benchmark
+    public Board setBoardZones()
+    {
+        Board b = new Board(solutions[nextGrid()]);
+        b.setBoardZones(rand);
+        return b;
+    }
+
+    // Zone growth alone, regrowing the same boards, without the reveals setBoardZones() adds
+    @Benchmark
+    public Board growZones()
+    {
+        Board b = solvedBoards[nextGrid()];
+        b.growZones(rand);
+        return b;
+    }
+
+    // The empty user board of a new game
+    @Benchmark
+    public Board cloneZones()
+    {
+        Board userBoard = new Board("");
+        userBoard.cloneZones(zonedBoards[nextGrid()]);
+        return userBoard;
+    }
+
+    @Benchmark
+    public boolean checkSolution()
+    {
+        return solvedBoards[nextGrid()].checkSolution();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(81)
+    public int isCellValid()
+    {
+        Board b = solvedBoards[nextGrid()];
+        int valid = 0;
+        for (int y = 0; y < 9; ++y)
+        {
+            for (int x = 0; x < 9; ++x)
+            {
+                if (b.isCellValid(b.getCell(x, y)))
+                    valid++;
+            }
+        }
+        return valid;
+    }
+
+    // The uniqueness proof setBoardZones runs while placing reveals
+    @Benchmark
+    public int countSolutions()
+    {
+        return new Solver(zonedBoards[nextGrid()]).countSolutions(2);
+    }
+}
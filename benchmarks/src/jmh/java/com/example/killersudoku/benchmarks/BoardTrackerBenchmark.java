@@ -0,0 +1,72 @@
+package com.example.killersudoku.benchmarks;
+
+import com.example.killersudoku.Models.BoardTracker;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Recording moves, undo/redo and replaying the move log
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardTrackerBenchmark
+{
+    private static final int MOVES = 1000;
+
+    private BoardTracker tracker;
+    private BoardTracker history;
+    private int[] cells;
+    private int[] values;
+    private int move;
+
+    @Setup
+    public void setUp()
+    {
+        Random rand = new Random(1);
+        cells = new int[MOVES];
+        values = new int[MOVES];
+        for (int i = 0; i < MOVES; ++i)
+        {
+            cells[i] = rand.nextInt(81);
+            values[i] = 1 + rand.nextInt(9);
+        }
+
+        tracker = new BoardTracker();
+        history = new BoardTracker();
+        for (int i = 0; i < MOVES; ++i)
+            addMove(history, i);
+    }
+
+    private void addMove(BoardTracker t, int i)
+    {
+        t.beginMove();
+        t.record(cells[i], 0, values[i], 0, 0, true, true);
+        t.endMove();
+    }
+
+    // A number entry: one move holding the cell's change, as GameDisplay.onNumClick records it
+    @Benchmark
+    public void recordMove()
+    {
+        move = (move + 1) % MOVES;
+        addMove(tracker, move);
+    }
+
+    @Benchmark
+    public int undoRedo(Blackhole bh)
+    {
+        BoardTracker.CellRestorer restorer = (cell, value, notes, valid) -> bh.consume(value);
+        history.undo(restorer);
+        return history.redo(restorer);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void replay(Blackhole bh)
+    {
+        history.replay((cell, value, notes, valid) -> bh.consume(value));
+    }
+}
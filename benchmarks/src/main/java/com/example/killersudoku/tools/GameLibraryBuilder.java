@@ -0,0 +1,246 @@
+package com.example.killersudoku.tools;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.DifficultyRater;
+import com.example.killersudoku.Models.GameLibrary;
+import com.example.killersudoku.Models.Solver;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Desktop tool, not shipped in the app, that turns a text file of solutions (one 81 digit solution per line, e.g. validSudokuGames.txt)
+// into a GameLibrary. Every puzzle gets its zones from setBoardZones(), a uniqueness proof and a difficulty score.
+//
+// Solutions are read in batches. Each batch is split into fork-join tasks that build their puzzles straight into
+// the batch's record buffer, and the next batch is read while the pool works. Records are written in input order,
+// and the layout of line n is drawn from a SplittableRandom seeded with seed + n, so the same input and seed
+// always build the same library regardless of the thread count.
+public class GameLibraryBuilder
+{
+    // Lines read and built per batch
+    private static final int BATCH_SIZE = 4096;
+    // Ranges of at most this many puzzles are built by one task instead of being split further
+    private static final int SPLIT_THRESHOLD = 8;
+
+    private final ForkJoinPool pool;
+    private final long seed;
+
+    public static class Result
+    {
+        public final int count;
+        // Lines that were not a valid solution, or whose layout could not be proven unique
+        public final int rejected;
+        public final long nanos;
+
+        private Result(int count, int rejected, long nanos)
+        {
+            this.count = count;
+            this.rejected = rejected;
+            this.nanos = nanos;
+        }
+
+        public double getPuzzlesPerSecond()
+        {
+            return nanos == 0 ? 0 : (count + rejected) / (nanos / 1e9);
+        }
+
+        @Override public String toString()
+        {
+            return String.format("%s puzzles (%s rejected) in %sms, %.1f puzzles/second",
+                    count, rejected, nanos / 1000000, getPuzzlesPerSecond());
+        }
+    }
+
+    public GameLibraryBuilder(int threads)
+    {
+        this(threads, new SplittableRandom().nextLong());
+    }
+
+    public GameLibraryBuilder(int threads, long seed)
+    {
+        this.pool = new ForkJoinPool(threads);
+        this.seed = seed;
+    }
+
+    public int getThreads()
+    {
+        return pool.getParallelism();
+    }
+
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    public Result build(File textFile, File libraryFile) throws IOException
+    {
+        try (BufferedReader reader = new BufferedReader(new FileReader(textFile), 1 << 16))
+        {
+            return build(reader, libraryFile);
+        }
+    }
+
+    public Result build(BufferedReader solutions, File libraryFile) throws IOException
+    {
+        long start = System.nanoTime();
+        int count = 0;
+        int rejected = 0;
+        long firstLine = 0;
+
+        try (RandomAccessFile output = new RandomAccessFile(libraryFile, "rw"))
+        {
+            output.setLength(0);
+            output.write(new byte[GameLibrary.HEADER_SIZE]);
+            // Writes through the file's own channel, which closing output closes as well
+            OutputStream records = new BufferedOutputStream(Channels.newOutputStream(output.getChannel()), 1 << 16);
+
+            String[] batch = readBatch(solutions);
+            while (batch.length > 0)
+            {
+                BuildTask task = new BuildTask(seed + firstLine, batch, new byte[batch.length * GameLibrary.RECORD_SIZE],
+                        new boolean[batch.length], 0, batch.length);
+                pool.execute(task);
+                String[] next = readBatch(solutions);
+                task.join();
+
+                for (int i = 0; i < batch.length; ++i)
+                {
+                    if (task.rejected[i])
+                    {
+                        rejected++;
+                        continue;
+                    }
+                    records.write(task.records, i * GameLibrary.RECORD_SIZE, GameLibrary.RECORD_SIZE);
+                    count++;
+                }
+                firstLine += batch.length;
+                batch = next;
+            }
+            records.flush();
+
+            output.seek(0);
+            GameLibrary.writeHeader(output, count);
+        }
+
+        return new Result(count, rejected, System.nanoTime() - start);
+    }
+
+    // Returns up to BATCH_SIZE non-empty lines, or an empty array at the end of the input
+    private static String[] readBatch(BufferedReader reader) throws IOException
+    {
+        String[] lines = new String[BATCH_SIZE];
+        int size = 0;
+        String line;
+        while (size < BATCH_SIZE && (line = reader.readLine()) != null)
+        {
+            line = line.trim();
+            if (!line.isEmpty())
+                lines[size++] = line;
+        }
+
+        String[] output = new String[size];
+        System.arraycopy(lines, 0, output, 0, size);
+        return output;
+    }
+
+    // Builds the puzzles of lines [from, to) into their slots of records, halving the range until it is small
+    private static class BuildTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        // Seed of the batch's first line
+        private final long seed;
+        private final String[] lines;
+        private final byte[] records;
+        private final boolean[] rejected;
+        private final int from;
+        private final int to;
+
+        BuildTask(long seed, String[] lines, byte[] records, boolean[] rejected, int from, int to)
+        {
+            this.seed = seed;
+            this.lines = lines;
+            this.records = records;
+            this.rejected = rejected;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= SPLIT_THRESHOLD)
+            {
+                for (int i = from; i < to; ++i)
+                {
+                    SplittableRandom rand = new SplittableRandom(seed + i);
+                    rejected[i] = !buildPuzzle(lines[i], rand, records, i * GameLibrary.RECORD_SIZE);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new BuildTask(seed, lines, records, rejected, from, middle),
+                    new BuildTask(seed, lines, records, rejected, middle, to));
+        }
+    }
+
+    // Generates the zones and reveals for one solution and encodes them, false if the line is not a solved grid or
+    // the layout has more than one solution
+    static boolean buildPuzzle(String solution, SplittableRandom rand, byte[] records, int offset)
+    {
+        if (!isSolutionString(solution))
+            return false;
+
+        Board board = new Board(solution);
+        if (!board.checkSolution())
+            return false;
+
+        board.setBoardZones(rand);
+        if (!Solver.countSolutions(board, 2).isUnique())
+            return false;
+
+        GameLibrary.encode(board, new DifficultyRater(board).rate().score, records, offset);
+        return true;
+    }
+
+    private static boolean isSolutionString(String line)
+    {
+        if (line.length() != 81)
+            return false;
+        for (int i = 0; i < 81; ++i)
+        {
+            char c = line.charAt(i);
+            if (c < '1' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    // Usage: GameLibraryBuilder <validSudokuGames.txt> <games.bin> [threads] [seed]
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2 || args.length > 4)
+        {
+            System.out.println("Usage: GameLibraryBuilder <solutions.txt> <library.bin> [threads] [seed]");
+            return;
+        }
+
+        int threads = args.length >= 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length == 4 ? Long.parseLong(args[3]) : new SplittableRandom().nextLong();
+        System.out.printf("Seed %s%n", seed);
+        GameLibraryBuilder builder = new GameLibraryBuilder(threads, seed);
+        try
+        {
+            Result result = builder.build(new File(args[0]), new File(args[1]));
+            System.out.printf("Wrote %s to %s on %s threads%n", result, args[1], threads);
+        }
+        finally
+        {
+            builder.shutdown();
+        }
+    }
+}
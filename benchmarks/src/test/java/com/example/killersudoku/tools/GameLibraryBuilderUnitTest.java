@@ -0,0 +1,133 @@
+package com.example.killersudoku.tools;
+
+import com.example.killersudoku.Models.Board;
+import com.example.killersudoku.Models.GameLibrary;
+import com.example.killersudoku.Models.GridGenerator;
+import com.example.killersudoku.Models.Solver;
+import com.example.killersudoku.Models.Zone;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GameLibraryBuilderUnitTest
+{
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    private static File solutionsFile(int count, long seed, String... extraLines) throws IOException
+    {
+        File file = File.createTempFile("solutions", ".txt");
+        file.deleteOnExit();
+        GridGenerator generator = new GridGenerator(new SplittableRandom(seed));
+        try (PrintWriter out = new PrintWriter(new FileWriter(file)))
+        {
+            for (int i = 0; i < count; ++i)
+                out.println(generator.generate());
+            for (String line : extraLines)
+                out.println(line);
+        }
+        return file;
+    }
+
+    private static GameLibrary build(File solutions, int threads) throws IOException
+    {
+        File library = File.createTempFile("games", ".bin");
+        library.deleteOnExit();
+        GameLibraryBuilder builder = new GameLibraryBuilder(threads);
+        try
+        {
+            builder.build(solutions, library);
+        }
+        finally
+        {
+            builder.shutdown();
+        }
+        return new GameLibrary(ByteBuffer.wrap(Files.readAllBytes(library.toPath())));
+    }
+
+    @Test
+    public void build_writesUniquePuzzlesInInputOrder() throws IOException
+    {
+        File solutions = solutionsFile(60, 1, "", "123", SOLUTION.replace('5', '4'));
+        List<String> lines = Files.readAllLines(solutions.toPath());
+        GameLibrary library = build(solutions, 4);
+
+        // The blank, short and unsolved lines are skipped
+        assertEquals(60, library.size());
+        for (int n = 0; n < library.size(); ++n)
+        {
+            Board b = library.getBoard(n);
+            assertTrue(b.checkSolution());
+            for (int i = 0; i < 81; ++i)
+                assertEquals(lines.get(n).charAt(i) - '0', b.getCell(i % 9, i / 9).value);
+
+            int cells = 0;
+            int total = 0;
+            for (Zone z : b.zones)
+            {
+                cells += z.cells.size();
+                total += z.getTotal();
+            }
+            assertEquals(81, cells);
+            assertEquals(405, total);
+            assertEquals(1, new Solver(b).countSolutions(2));
+            assertTrue(library.getScore(n) > 0);
+        }
+    }
+
+    @Test
+    public void build_isReproducibleFromItsSeed() throws IOException
+    {
+        File solutions = solutionsFile(40, 3);
+        File first = File.createTempFile("games", ".bin");
+        File second = File.createTempFile("games", ".bin");
+        first.deleteOnExit();
+        second.deleteOnExit();
+
+        GameLibraryBuilder oneThread = new GameLibraryBuilder(1, 99);
+        GameLibraryBuilder fourThreads = new GameLibraryBuilder(4, 99);
+        try
+        {
+            oneThread.build(solutions, first);
+            fourThreads.build(solutions, second);
+        }
+        finally
+        {
+            oneThread.shutdown();
+            fourThreads.shutdown();
+        }
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    }
+
+    // Prints throughput on one thread and on every core rather than asserting a speedup, since CI machines vary
+    @Test
+    public void benchmark_buildThroughput() throws IOException
+    {
+        File solutions = solutionsFile(1000, 2);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        File library = File.createTempFile("games", ".bin");
+        library.deleteOnExit();
+        for (int threads : new int[] { 1, cores })
+        {
+            GameLibraryBuilder builder = new GameLibraryBuilder(threads);
+            try
+            {
+                builder.build(solutions, library);
+                GameLibraryBuilder.Result result = builder.build(solutions, library);
+                assertEquals(1000, result.count);
+                System.out.printf("GameLibraryBuilder on %s threads: %s%n", threads, result);
+            }
+            finally
+            {
+                builder.shutdown();
+            }
+        }
+    }
+}
@@ -15,3 +15,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "KillerSudoku"
 include(":app")
+include(":benchmarks")